@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.api;
+
+import net.minecraftforge.gitver.internal.ChangelogTemplateImpl;
+import org.jetbrains.annotations.NotNullByDefault;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * The layout of a changelog generated by {@link GitVersion#generateChangelog(String, String, ChangelogTemplate)}.
+ * <p>
+ * A template is made of several parts, each of which is a string of literal text with fields in braces, such as
+ * {@code {version}}. A literal brace is written as <code>&#123;&#123;</code>. Every part is compiled once when the
+ * template is built, and compiled parts are shared by every template in the process, so custom layouts render as fast
+ * as the built-in ones.
+ * <ul>
+ *     <li>{@linkplain Builder#header(String) Header}: written once at the start. Fields: {@code {name}} (the current
+ *     branch), {@code {url}}, {@code {start}} and {@code {end}} (the full IDs of the first and last commit).</li>
+ *     <li>{@linkplain Builder#versionHeader(String) Version header}: written before the commits of each
+ *     identifiable-version. Fields: {@code {version}} and {@code {underline}} (a {@code =} for each character of the
+ *     version).</li>
+ *     <li>{@linkplain Builder#commit(String) Commit}: written for each commit. Fields: {@code {version}} (padded so
+ *     that the versions of a release line up, or the tag link if the commit is tagged), {@code {hash}} (the full
+ *     commit ID) and {@code {message}} (the commit message, without Signed-off-by and blank lines, with every line
+ *     indented to where the message starts).</li>
+ *     <li>{@linkplain Builder#tagLink(String) Tag link}: used as the version of tagged commits. Fields:
+ *     {@code {version}} (padded), {@code {tag}} and {@code {url}}.</li>
+ *     <li>{@linkplain Builder#pullRequestLink(String) Pull request link}: replaces the pull request number in commit
+ *     messages, if set. Fields: {@code {number}} and {@code {url}}.</li>
+ *     <li>{@linkplain Builder#tagFooter(String) Tag footer}: written after each tagged commit. No fields.</li>
+ * </ul>
+ * <p>
+ * Field values are written as they are, unless an {@linkplain Builder#escaper(UnaryOperator) escaper} is set, which
+ * is needed for formats such as HTML or JSON. For these, the lines of commit messages can also be joined with a
+ * {@linkplain Builder#messageSeparator(String) separator} of their own instead of indented line breaks.
+ *
+ * @see #MARKDOWN
+ * @see #PLAIN_TEXT
+ */
+@NotNullByDefault
+public sealed interface ChangelogTemplate permits ChangelogTemplateImpl {
+    /** The Markdown layout, which links tags, pull requests, and the compared commits to the repository. */
+    ChangelogTemplate MARKDOWN = builder().build();
+
+    /** The plain text layout, which has a header for each identifiable-version and no links. */
+    ChangelogTemplate PLAIN_TEXT = builder()
+        .header("{name} Changelog\n")
+        .versionHeader("{version}\n{underline}\n")
+        .tagLink("{version}")
+        .pullRequestLink(null)
+        .tagFooter("\n")
+        .build();
+
+    /**
+     * Creates a new builder for a changelog template, starting from the {@linkplain #MARKDOWN Markdown} layout.
+     *
+     * @return A new builder
+     */
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A builder for creating a {@link ChangelogTemplate}. Every part that is not set is the same as in the
+     * {@linkplain #MARKDOWN Markdown} layout.
+     */
+    final class Builder {
+        private String header = "### [{name} Changelog]({url}/compare/{start}...{end})" + System.lineSeparator();
+        private String versionHeader = "";
+        private String commit = " - {version} {message}\n";
+        private String tagLink = "[{version}]({url}/tree/{tag})";
+        private @Nullable String pullRequestLink = "[#{number}]({url}/pull/{number})";
+        private String tagFooter = "";
+        private @Nullable UnaryOperator<String> escaper;
+        private @Nullable String messageSeparator;
+
+        private Builder() { }
+
+        /**
+         * Sets the header, which is written once at the start of the changelog.
+         *
+         * @param header The header template
+         * @return This builder
+         */
+        public Builder header(String header) {
+            this.header = header;
+            return this;
+        }
+
+        /**
+         * Sets the version header, which is written before the commits of each identifiable-version.
+         *
+         * @param versionHeader The version header template
+         * @return This builder
+         */
+        public Builder versionHeader(String versionHeader) {
+            this.versionHeader = versionHeader;
+            return this;
+        }
+
+        /**
+         * Sets the line written for each commit.
+         *
+         * @param commit The commit template
+         * @return This builder
+         */
+        public Builder commit(String commit) {
+            this.commit = commit;
+            return this;
+        }
+
+        /**
+         * Sets the link used as the version of tagged commits.
+         *
+         * @param tagLink The tag link template
+         * @return This builder
+         */
+        public Builder tagLink(String tagLink) {
+            this.tagLink = tagLink;
+            return this;
+        }
+
+        /**
+         * Sets the link that replaces pull request numbers in commit messages.
+         *
+         * @param pullRequestLink The pull request link template, or {@code null} to not link pull requests
+         * @return This builder
+         */
+        public Builder pullRequestLink(@Nullable String pullRequestLink) {
+            this.pullRequestLink = pullRequestLink;
+            return this;
+        }
+
+        /**
+         * Sets the footer, which is written after each tagged commit.
+         *
+         * @param tagFooter The tag footer template
+         * @return This builder
+         */
+        public Builder tagFooter(String tagFooter) {
+            this.tagFooter = tagFooter;
+            return this;
+        }
+
+        /**
+         * Sets the escaper of field values, which is applied to every value before it is written, such as the name,
+         * versions, commit IDs, URLs, and the text of commit messages. The literal text of the template and the
+         * {@linkplain #messageSeparator(String) message separator} are not escaped.
+         *
+         * @param escaper The escaper, or {@code null} to write field values as they are
+         * @return This builder
+         */
+        public Builder escaper(@Nullable UnaryOperator<String> escaper) {
+            this.escaper = escaper;
+            return this;
+        }
+
+        /**
+         * Sets what the lines of a commit message are joined with in the {@code {message}} field. By default, every
+         * line after the first starts on a new line and is indented to where the message started.
+         *
+         * @param messageSeparator The literal text to join the lines with, such as {@code "<br>"} or {@code "\\n"},
+         *                         or {@code null} to indent every line on a new line
+         * @return This builder
+         */
+        public Builder messageSeparator(@Nullable String messageSeparator) {
+            this.messageSeparator = messageSeparator;
+            return this;
+        }
+
+        /**
+         * Builds the changelog template, compiling each of its parts.
+         *
+         * @return The changelog template
+         * @throws IllegalArgumentException If a part uses a field it does not have, or has an unclosed brace
+         */
+        public ChangelogTemplate build() {
+            return new ChangelogTemplateImpl(this.header, this.versionHeader, this.commit, this.tagLink, this.pullRequestLink, this.tagFooter, this.escaper, this.messageSeparator);
+        }
+    }
+}
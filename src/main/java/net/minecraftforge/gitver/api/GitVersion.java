@@ -19,15 +19,23 @@ import org.jetbrains.annotations.UnknownNullability;
 import org.jetbrains.annotations.UnmodifiableView;
 
 import java.io.File;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * The heart of the GitVersion library. Information about how GitVersion operates can be found on the
  * <a href="https://github.com/MinecraftForge/GitVersion">path page</a>.
+ * <p>
+ * GitVersion instances are thread-safe. If several threads ask for the {@linkplain #getInfo() info} at the same
+ * time, it is only calculated once, and every thread receives the same result.
  */
 @NotNullByDefault
 public sealed interface GitVersion extends AutoCloseable permits GitVersionImpl {
@@ -57,6 +65,10 @@ public sealed interface GitVersion extends AutoCloseable permits GitVersionImpl
         private @Nullable File project;
         private @Nullable GitVersionConfig config;
         private boolean strict = true;
+        private boolean cache = false;
+        private @Nullable Executor executor;
+        private boolean prefetch = false;
+        private @Nullable Executor prefetchExecutor;
 
         private Builder() { }
 
@@ -115,6 +127,61 @@ public sealed interface GitVersion extends AutoCloseable permits GitVersionImpl
             return this;
         }
 
+        /**
+         * Sets whether the GitVersion instance may cache data it reads from the Git repository in the
+         * {@code gitversion} directory inside of the git directory, so that subsequent runs in the same clone can skip
+         * that work. The cache is disabled by default.
+         *
+         * @param cache Whether to use the cache
+         * @return This builder
+         */
+        public Builder cache(boolean cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * Sets the executor that asynchronous calls such as {@link GitVersion#getInfoAsync()} run on. By default,
+         * they run on virtual threads if the runtime supports them, or on a shared pool of daemon threads otherwise.
+         *
+         * @param executor The executor
+         * @return This builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets whether the GitVersion instance starts calculating its {@linkplain GitVersion#getInfo() info} in the
+         * background as soon as it is built, on its {@linkplain #executor(Executor) executor}. This opens the
+         * repository, loads the tags and describes {@code HEAD} ahead of time, so the first call to
+         * {@link GitVersion#getInfo()} usually finds the info ready instead of waiting for all of it. Prefetching is
+         * disabled by default.
+         * <p>
+         * If prefetching fails, the error is not reported until the info is asked for.
+         *
+         * @param prefetch Whether to prefetch the info
+         * @return This builder
+         */
+        public Builder prefetch(boolean prefetch) {
+            this.prefetch = prefetch;
+            return this;
+        }
+
+        /**
+         * Enables {@linkplain #prefetch(boolean) prefetching} the info of the GitVersion instance on the given
+         * executor instead of its {@linkplain #executor(Executor) executor}.
+         *
+         * @param executor The executor to prefetch the info on
+         * @return This builder
+         */
+        public Builder prefetch(Executor executor) {
+            this.prefetch = true;
+            this.prefetchExecutor = executor;
+            return this;
+        }
+
         /**
          * Builds the GitVersion instance.
          *
@@ -138,7 +205,11 @@ public sealed interface GitVersion extends AutoCloseable permits GitVersionImpl
             if (this.config == null)
                 this.config = GitVersionConfig.parse(new File(this.root, ".gitversion"));
 
-            return new GitVersionImpl(this.gitDir, this.root, this.project, this.config, this.strict);
+            var gitVersion = new GitVersionImpl(this.gitDir, this.root, this.project, this.config, this.strict, this.cache, this.executor);
+            if (this.prefetch)
+                gitVersion.prefetch(this.prefetchExecutor);
+
+            return gitVersion;
         }
     }
 
@@ -241,9 +312,156 @@ public sealed interface GitVersion extends AutoCloseable permits GitVersionImpl
      * @param plainText Whether to generate the changelog in plain text ({@code} false to use Markdown formatting)
      * @return The generated changelog
      * @throws GitVersionException If changelog fails to generate (in {@linkplain Builder#strict(boolean) strict mode})
+     * @see #generateChangelog(String, String, boolean, Collection)
      */
     String generateChangelog(@Nullable String start, @Nullable String url, boolean plainText) throws GitVersionException;
 
+    /**
+     * Attempts to generate a changelog using the parameters given to this GitVersion.
+     * <p>
+     * If no start is given, the changelog starts from the youngest merge base with the given remote branches. Limiting
+     * these to the relevant branches avoids walking the history of every pull request and feature branch in large
+     * mirrors. If there is no merge base, it starts from the root commit that the first parents of {@code HEAD} lead
+     * to. In a repository with several root commits, such as one that merged in the history of another repository,
+     * this is the root of the main line rather than the oldest commit.
+     * <p>
+     * If {@linkplain Builder#strict(boolean) strict mode} is disabled, this method will return an empty string instead
+     * of throwing an exception.
+     *
+     * @param start     The tag or commit hash to start the changelog from, or {@code null} to start from the current
+     * @param url       The URL to the repository, or {@code null} to attempt to use the
+     *                  {@linkplain Info#getUrl() auto-calculated URL} (if available)
+     * @param plainText Whether to generate the changelog in plain text ({@code} false to use Markdown formatting)
+     * @param branches  The patterns of the remote branches to find the merge base with, such as {@code origin/main}
+     *                  or {@code origin/1.21.*}, or an empty collection for all remote branches
+     * @return The generated changelog
+     * @throws GitVersionException If changelog fails to generate (in {@linkplain Builder#strict(boolean) strict mode})
+     * @see GitVersionConfig#getMergeBaseBranches()
+     */
+    String generateChangelog(@Nullable String start, @Nullable String url, boolean plainText, Collection<String> branches) throws GitVersionException;
+
+    /**
+     * Attempts to generate a changelog using the parameters given to this GitVersion, laid out with the given
+     * template.
+     * <p>
+     * If {@linkplain Builder#strict(boolean) strict mode} is disabled, this method will return an empty string instead
+     * of throwing an exception.
+     *
+     * @param start    The tag or commit hash to start the changelog from, or {@code null} to start from the current
+     * @param url      The URL to the repository, or {@code null} to attempt to use the
+     *                 {@linkplain Info#getUrl() auto-calculated URL} (if available)
+     * @param template The template to lay out the changelog with, such as {@link ChangelogTemplate#MARKDOWN}
+     * @return The generated changelog
+     * @throws GitVersionException If changelog fails to generate (in {@linkplain Builder#strict(boolean) strict mode})
+     * @see ChangelogTemplate
+     */
+    String generateChangelog(@Nullable String start, @Nullable String url, ChangelogTemplate template) throws GitVersionException;
+
+    /**
+     * Attempts to generate a changelog using the parameters given to this GitVersion, writing it to the given output
+     * as it is generated instead of building it in memory first. This is preferred for long changelogs that are
+     * written to a file anyway.
+     * <p>
+     * If {@linkplain Builder#strict(boolean) strict mode} is disabled, this method will stop writing instead of
+     * throwing an exception. Anything written up to that point is left in the output.
+     *
+     * @param start     The tag or commit hash to start the changelog from, or {@code null} to start from the current
+     * @param url       The URL to the repository, or {@code null} to attempt to use the
+     *                  {@linkplain Info#getUrl() auto-calculated URL} (if available)
+     * @param plainText Whether to generate the changelog in plain text ({@code} false to use Markdown formatting)
+     * @param out       The output to write the changelog to, such as a {@link java.io.Writer Writer}
+     * @throws GitVersionException If changelog fails to generate or cannot be written (in
+     *                             {@linkplain Builder#strict(boolean) strict mode})
+     * @see #generateChangelog(String, String, boolean)
+     */
+    void generateChangelog(@Nullable String start, @Nullable String url, boolean plainText, Appendable out) throws GitVersionException;
+
+    /**
+     * Attempts to generate a changelog using the parameters given to this GitVersion, writing it to the given output
+     * as it is generated instead of building it in memory first.
+     * <p>
+     * If {@linkplain Builder#strict(boolean) strict mode} is disabled, this method will stop writing instead of
+     * throwing an exception. Anything written up to that point is left in the output.
+     *
+     * @param start     The tag or commit hash to start the changelog from, or {@code null} to start from the current
+     * @param url       The URL to the repository, or {@code null} to attempt to use the
+     *                  {@linkplain Info#getUrl() auto-calculated URL} (if available)
+     * @param plainText Whether to generate the changelog in plain text ({@code} false to use Markdown formatting)
+     * @param branches  The patterns of the remote branches to find the merge base with, such as {@code origin/main}
+     *                  or {@code origin/1.21.*}, or an empty collection for all remote branches
+     * @param out       The output to write the changelog to, such as a {@link java.io.Writer Writer}
+     * @throws GitVersionException If changelog fails to generate or cannot be written (in
+     *                             {@linkplain Builder#strict(boolean) strict mode})
+     * @see #generateChangelog(String, String, boolean, Collection)
+     */
+    void generateChangelog(@Nullable String start, @Nullable String url, boolean plainText, Collection<String> branches, Appendable out) throws GitVersionException;
+
+    /**
+     * Attempts to generate a changelog using the parameters given to this GitVersion, laid out with the given template
+     * and written to the given output as it is generated.
+     * <p>
+     * If {@linkplain Builder#strict(boolean) strict mode} is disabled, this method will stop writing instead of
+     * throwing an exception. Anything written up to that point is left in the output.
+     *
+     * @param start    The tag or commit hash to start the changelog from, or {@code null} to start from the current
+     * @param url      The URL to the repository, or {@code null} to attempt to use the
+     *                 {@linkplain Info#getUrl() auto-calculated URL} (if available)
+     * @param template The template to lay out the changelog with, such as {@link ChangelogTemplate#MARKDOWN}
+     * @param branches The patterns of the remote branches to find the merge base with, such as {@code origin/main}
+     *                 or {@code origin/1.21.*}, or an empty collection for all remote branches
+     * @param out      The output to write the changelog to, such as a {@link java.io.Writer Writer}
+     * @throws GitVersionException If changelog fails to generate or cannot be written (in
+     *                             {@linkplain Builder#strict(boolean) strict mode})
+     * @see ChangelogTemplate
+     */
+    void generateChangelog(@Nullable String start, @Nullable String url, ChangelogTemplate template, Collection<String> branches, Appendable out) throws GitVersionException;
+
+    /**
+     * Attempts to generate a changelog using the parameters given to this GitVersion, writing it to the given stream
+     * in UTF-8 as it is generated. The stream is flushed, but not closed.
+     * <p>
+     * If {@linkplain Builder#strict(boolean) strict mode} is disabled, this method will stop writing instead of
+     * throwing an exception. Anything written up to that point is left in the stream.
+     *
+     * @param start     The tag or commit hash to start the changelog from, or {@code null} to start from the current
+     * @param url       The URL to the repository, or {@code null} to attempt to use the
+     *                  {@linkplain Info#getUrl() auto-calculated URL} (if available)
+     * @param plainText Whether to generate the changelog in plain text ({@code} false to use Markdown formatting)
+     * @param out       The stream to write the changelog to
+     * @throws GitVersionException If changelog fails to generate or cannot be written (in
+     *                             {@linkplain Builder#strict(boolean) strict mode})
+     * @see #generateChangelog(String, String, boolean, Appendable)
+     */
+    void generateChangelog(@Nullable String start, @Nullable String url, boolean plainText, OutputStream out) throws GitVersionException;
+
+    /**
+     * Generates a changelog like {@link #generateChangelog(String, String, boolean)} on the
+     * {@linkplain Builder#executor(Executor) executor} of this GitVersion.
+     *
+     * @param start     The tag or commit hash to start the changelog from, or {@code null} to start from the current
+     * @param url       The URL to the repository, or {@code null} to attempt to use the
+     *                  {@linkplain Info#getUrl() auto-calculated URL} (if available)
+     * @param plainText Whether to generate the changelog in plain text ({@code} false to use Markdown formatting)
+     * @return A future of the generated changelog, which completes exceptionally with a {@link GitVersionException}
+     * if the changelog fails to generate (in {@linkplain Builder#strict(boolean) strict mode})
+     * @see #generateChangelog(String, String, boolean)
+     */
+    CompletableFuture<String> generateChangelogAsync(@Nullable String start, @Nullable String url, boolean plainText);
+
+    /**
+     * Generates a changelog like {@link #generateChangelog(String, String, ChangelogTemplate)} on the
+     * {@linkplain Builder#executor(Executor) executor} of this GitVersion.
+     *
+     * @param start    The tag or commit hash to start the changelog from, or {@code null} to start from the current
+     * @param url      The URL to the repository, or {@code null} to attempt to use the
+     *                 {@linkplain Info#getUrl() auto-calculated URL} (if available)
+     * @param template The template to lay out the changelog with, such as {@link ChangelogTemplate#MARKDOWN}
+     * @return A future of the generated changelog, which completes exceptionally with a {@link GitVersionException}
+     * if the changelog fails to generate (in {@linkplain Builder#strict(boolean) strict mode})
+     * @see #generateChangelog(String, String, ChangelogTemplate)
+     */
+    CompletableFuture<String> generateChangelogAsync(@Nullable String start, @Nullable String url, ChangelogTemplate template);
+
 
     /* INFO */
 
@@ -253,18 +471,79 @@ public sealed interface GitVersion extends AutoCloseable permits GitVersionImpl
      * <p>
      * This object is lazily recalculated whenever one of the values of this version object change, such as the tag
      * prefix or match filters. As such, it is recommended not to cache the result of this method.
+     * <p>
+     * The fields of the info are calculated in independent groups, each only once one of its fields is first asked
+     * for. For example, {@link Info#getCommit()} only resolves {@code HEAD}, without describing it or walking its
+     * history. The info can also be compared with the plain info of {@link #getAllInfo()}, in which case all of its
+     * fields are calculated.
      *
      * @return Information about the current state of the Git repository
+     * @throws GitVersionException Never by this method itself, since it does not calculate anything. In
+     *                             {@linkplain Builder#strict(boolean) strict mode}, a group that fails to calculate
+     *                             throws from the getters of its fields instead, as well as from {@code equals},
+     *                             {@code hashCode} and {@code toString}
      * @see Info
      */
     Info getInfo() throws GitVersionException;
 
+    /**
+     * Gets the {@link Info info} like {@link #getInfo()} on the {@linkplain Builder#executor(Executor) executor} of
+     * this GitVersion. This allows the info to be calculated while other work is being done, such as the rest of a
+     * build's configuration, and joined once it is needed.
+     * <p>
+     * Calling this more than once, or together with {@link #getInfo()}, does not calculate the info again.
+     *
+     * @return A future of the info, which completes exceptionally with a {@link GitVersionException} if it fails to
+     * calculate (in {@linkplain Builder#strict(boolean) strict mode})
+     * @see #getInfo()
+     */
+    CompletableFuture<Info> getInfoAsync();
+
+    /**
+     * Gets the {@link Info info} of every project declared in the config, including this one. The result for each
+     * project is the same as building a GitVersion for that project and calling {@link #getInfo()} on it.
+     * <p>
+     * Calculating the info of many projects this way is much cheaper than doing so one project at a time, since every
+     * commit since the projects' tags only needs to be diffed once. The paths it changed are then attributed to all
+     * projects at the same time.
+     *
+     * @return The info of every project, keyed by the project's path from the {@linkplain #getRoot() root}
+     * @throws GitVersionException If the info of any project fails to calculate (in
+     *                             {@linkplain Builder#strict(boolean) strict mode})
+     * @see #getInfo()
+     */
+    @UnmodifiableView Map<String, Info> getAllInfo() throws GitVersionException;
+
+    /**
+     * Calculates the {@link Info info} of every commit from the given start to {@code HEAD}. The info of each commit
+     * is the same as {@link #getInfo()} would return with that commit checked out, except for the
+     * {@linkplain Info#getBranch() branch}, which is always the current one, and the described offset of some merges.
+     * <p>
+     * All commits are described in a single walk, oldest first, and each commit only adds onto the info of its
+     * parents. This is much cheaper than describing every commit on its own. A merge commit is described with the
+     * nearest tag of its parents, and its described offset is the exact number of commits since that tag, where
+     * {@code git describe} and {@link #getInfo()} may only estimate it. Commits that cannot be described, such as
+     * commits made before the first matching tag, are skipped. Otherwise, the offset is calculated the same way as for
+     * {@link #getInfo()}, including when it throws in strict mode because no commits since the tag changed this
+     * project.
+     * <p>
+     * If {@linkplain Builder#strict(boolean) strict mode} is disabled, this method will stop without throwing an
+     * exception if the info fails to calculate.
+     *
+     * @param start  The tag or commit hash of the oldest commit to include, or {@code null} to include every commit
+     *               reachable from {@code HEAD}
+     * @param action The action to perform on the info of each commit, parents before their children
+     * @throws GitVersionException If the info fails to calculate (in {@linkplain Builder#strict(boolean) strict mode})
+     * @see #getInfo()
+     */
+    void forEachCommitInfo(@Nullable String start, Consumer<? super Info> action) throws GitVersionException;
+
     /**
      * Represents information about a git repository. This can be used to access other information when the standard
      * versioning methods in {@link GitVersion} do not suffice.
      */
     @NotNullByDefault
-    sealed interface Info extends Serializable permits GitVersionImpl.Info {
+    sealed interface Info extends Serializable permits GitVersionImpl.Info, GitVersionImpl.LazyInfo {
         /** @return The current tag as described by the Git repository using the applied filters */
         String getTag();
 
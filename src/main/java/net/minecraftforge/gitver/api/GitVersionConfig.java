@@ -44,6 +44,23 @@ public sealed interface GitVersionConfig extends Function<@Nullable String, GitV
         return Collections.singleton(this.getRootProject());
     }
 
+    /**
+     * Gets the remote branches that changelogs find their merge base with when no start is given, such as
+     * {@code origin/main} or {@code origin/1.21.*}. Patterns are matched against the branch names without
+     * {@code refs/remotes/}, and wildcards only match within a single path segment, so {@code origin/1.21.*} does not
+     * match {@code origin/1.21.x/feature}.
+     * <p>
+     * In the config file, these are given by the top-level {@code branches} array:
+     * <pre>{@code
+     * branches = ["origin/main", "origin/1.21.*"]
+     * }</pre>
+     *
+     * @return The patterns of the remote branches, or an empty list to consider all remote branches
+     */
+    default List<String> getMergeBaseBranches() {
+        return Collections.emptyList();
+    }
+
     /**
      * Validates this configuration by ensuring that all declared subprojects exist from the given root.
      *
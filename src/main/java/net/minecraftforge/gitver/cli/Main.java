@@ -30,6 +30,11 @@ public final class Main {
             Disables strict mode, allowing GitVersion to continue even if an error occurs.
             Version numbers will be set to default values (i.e. 0.0.0), and generated changelogs will be completely empty.""");
 
+        var cache0 = parser.accepts("cache",
+            """
+            Allows Git Version to cache data it reads from the repository in the 'gitversion' directory inside of the git directory.
+            Subsequent runs in the same clone use it to skip work, such as peeling tags that have not changed.""");
+
         // config file
         var configFile0 = parser.accepts("config-file",
             """
@@ -65,6 +70,7 @@ public final class Main {
         }
 
         var strict = !options.has(disableStrict0);
+        var cache = options.has(cache0);
         var configFile = options.valueOf(configFile0);
         var projectDir = options.valueOf(projectDir0);
         var rootDir = options.valueOf(rootDir0);
@@ -76,6 +82,7 @@ public final class Main {
             .project(projectDir)
             .config(configFile)
             .strict(strict)
+            .cache(cache)
             .build()
         ) {
             System.out.print(version.getTagOffset());
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.internal.storage.commitgraph.ChangedPathFilter;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.TreeRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A path-limiting {@link RevFilter} that consults the changed-path Bloom filters of the repository's commit-graph
+ * before diffing trees.
+ * <p>
+ * A commit with a single parent is only diffed against that parent if its Bloom filter reports that it
+ * <em>might</em> have changed one of the included paths. If the filter reports that it certainly did not, the commit
+ * is rejected without reading any trees. Merge commits, commits outside of the commit-graph, and commits without a
+ * Bloom filter are always diffed, so the commits this filter accepts are the same as with a plain
+ * {@link TreeRevFilter}.
+ *
+ * @see #create(RevWalk, CommitGraph, Iterable, Iterable)
+ */
+final class ChangedPathRevFilter extends RevFilter {
+    private final RevFilter diff;
+    private final CommitGraph graph;
+    private final byte[][] paths;
+
+    private ChangedPathRevFilter(RevFilter diff, CommitGraph graph, byte[][] paths) {
+        this.diff = diff;
+        this.graph = graph;
+        this.paths = paths;
+    }
+
+    /**
+     * Creates the filter for the given walk. The paths are treated the same way as
+     * {@link org.eclipse.jgit.api.LogCommand#addPath(String) LogCommand.addPath(String)} and
+     * {@link org.eclipse.jgit.api.LogCommand#excludePath(String) LogCommand.excludePath(String)}.
+     *
+     * @param walk         The walk the filter will be used in
+     * @param graph        The commit-graph to read the Bloom filters from, or {@code null} to always diff trees
+     * @param includePaths The paths to include
+     * @param excludePaths The paths to exclude
+     * @return The filter, or {@link RevFilter#ALL} if no paths are given
+     */
+    static RevFilter create(RevWalk walk, @Nullable CommitGraph graph, Iterable<String> includePaths, Iterable<String> excludePaths) {
+        var includes = new ArrayList<PathFilter>();
+        for (var path : includePaths)
+            includes.add(PathFilter.create(path));
+
+        var filters = new ArrayList<TreeFilter>();
+        if (!includes.isEmpty())
+            filters.add(AndTreeFilter.create(PathFilterGroup.create(includes), TreeFilter.ANY_DIFF));
+        for (var path : excludePaths)
+            filters.add(AndTreeFilter.create(PathFilter.create(path).negate(), TreeFilter.ANY_DIFF));
+
+        if (filters.isEmpty()) return RevFilter.ALL;
+        if (filters.size() == 1) filters.add(TreeFilter.ANY_DIFF);
+
+        var diff = new TreeRevFilter(walk, AndTreeFilter.create(filters));
+        var paths = graph != null ? bloomPaths(includes) : null;
+        return paths != null ? new ChangedPathRevFilter(diff, graph, paths) : diff;
+    }
+
+    /**
+     * Gets the paths to look up in the Bloom filters. Git has written Bloom filters with two different hash versions
+     * that only disagree on non-ASCII paths, so those paths are never looked up.
+     *
+     * @param includes The included paths
+     * @return The paths, or {@code null} if the Bloom filters cannot be used for the given paths
+     */
+    static byte @Nullable [][] bloomPaths(List<PathFilter> includes) {
+        if (includes.isEmpty()) return null;
+
+        var paths = new byte[includes.size()][];
+        for (int i = 0; i < paths.length; i++) {
+            var path = includes.get(i).getPath();
+            for (int c = 0; c < path.length(); c++) {
+                if (path.charAt(c) >= 0x80) return null;
+            }
+
+            paths[i] = Constants.encode(path);
+        }
+
+        return paths;
+    }
+
+    /**
+     * Gets the Bloom filter of the given commit, which holds the paths it changed compared to its first parent.
+     *
+     * @param graph  The commit-graph to read the Bloom filter from
+     * @param commit The commit
+     * @return The Bloom filter, or {@code null} if the commit is not in the commit-graph or has no Bloom filter
+     */
+    static @Nullable ChangedPathFilter getBloomFilter(CommitGraph graph, AnyObjectId commit) {
+        int position = graph.findGraphPosition(commit);
+        return position >= 0 ? graph.getChangedPathFilter(position) : null;
+    }
+
+    /**
+     * @param filter The Bloom filter of a commit
+     * @param paths  The paths to look up, from {@link #bloomPaths(List)}
+     * @return {@code true} if the Bloom filter rules out every one of the given paths
+     */
+    static boolean isUnchanged(ChangedPathFilter filter, byte[][] paths) {
+        try {
+            for (var path : paths) {
+                if (filter.maybeContains(path)) return false;
+            }
+        } catch (ArithmeticException e) {
+            // an empty filter cannot be queried, so diff the trees instead
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean include(RevWalk walker, RevCommit c) throws IOException {
+        if (c.getParentCount() == 1) {
+            var filter = getBloomFilter(this.graph, c);
+            if (filter != null && isUnchanged(filter, this.paths)) return false;
+        }
+
+        return this.diff.include(walker, c);
+    }
+
+    @Override
+    public boolean requiresCommitBody() {
+        return false;
+    }
+
+    @Override
+    public RevFilter clone() {
+        return new ChangedPathRevFilter(this.diff.clone(), this.graph, this.paths);
+    }
+
+    @Override
+    public String toString() {
+        return "CHANGED_PATH(" + this.diff + ")";
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts path-filtered commits for many projects of the same repository at once.
+ * <p>
+ * The first time any project's count needs to know whether a commit changed its paths, the commit is diffed against
+ * its parent once for the paths of <em>every</em> project, and the result is remembered as a bitset of the projects it
+ * touched. Counting the commits of the other projects then only needs to walk the commits, not diff them again. If
+ * the commit-graph has changed-path Bloom filters, projects that a commit certainly did not touch are left out of the
+ * diff, and the diff is skipped entirely if that leaves no projects.
+ * <p>
+ * Merge commits are diffed separately for each project. Path-limiting simplifies the history through merges in a way
+ * that depends on the paths being filtered, so sharing their results would change the counts.
+ * <p>
+ * If a {@linkplain GitCache cache} is given, the bitsets are also stored in an index in the cache directory, one
+ * fixed-width row per commit. Since a commit and its parent never change, the rows stay valid forever and later runs
+ * only need to diff, and append rows for, the commits made since. The index is named after a hash of the project
+ * paths, so changing the paths in the config starts a new index.
+ *
+ * @see #count(Paths, AnyObjectId, AnyObjectId)
+ */
+final class ChangedProjects implements AutoCloseable {
+    private static final int VERSION = 1;
+
+    private final Map<Paths, Integer> indices = new HashMap<>();
+    private final List<Project> projects = new ArrayList<>();
+    private final int words;
+
+    private final ObjectReader reader;
+    private final @Nullable CommitGraph graph;
+    private final TreeWalk treeWalk;
+    private final TreeFilter filter;
+    private final ObjectIdOwnerMap<Entry> changes = new ObjectIdOwnerMap<>();
+
+    // persistent index
+    private final @Nullable GitCache cache;
+    private final String indexName;
+    private boolean loaded;
+    private boolean indexed;
+    private final List<Entry> added = new ArrayList<>();
+
+    /**
+     * @param repository The repository to count commits in
+     * @param paths      The paths of every project to count commits for
+     * @param cache      The cache to store the changed projects of each commit in, or {@code null} to not store them
+     */
+    ChangedProjects(Repository repository, Collection<Paths> paths, @Nullable GitCache cache) {
+        for (var p : paths) {
+            if (this.indices.putIfAbsent(p, this.projects.size()) == null)
+                this.projects.add(new Project(this.projects.size(), p));
+        }
+        this.words = (this.projects.size() + 63) >>> 6;
+
+        this.reader = repository.newObjectReader();
+        this.graph = CommitGraphWalk.load(repository);
+        this.treeWalk = new TreeWalk(this.reader);
+        this.treeWalk.setRecursive(true);
+        this.filter = createFilter(this.projects);
+
+        this.cache = cache;
+        this.indexName = "changes-%08x.idx".formatted(this.hashProjects());
+    }
+
+    /**
+     * Counts the commits reachable from {@code to} that are not reachable from the parents of {@code from} and that
+     * changed the given paths, minus one. This matches
+     * {@link GitUtils#countCommits(org.eclipse.jgit.api.Git, org.eclipse.jgit.lib.ObjectId, Iterable, Iterable)}.
+     *
+     * @param paths The paths of the project to count commits for, which must have been given to the constructor
+     * @param from  The commit to start counting from (the oldest)
+     * @param to    The commit to count to (the youngest)
+     * @return The commit count
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     */
+    int count(Paths paths, AnyObjectId from, AnyObjectId to) throws IOException {
+        try (var walk = new RevWalk(this.reader)) {
+            return GitUtils.countCommits(walk, from, to, this.filter(paths, walk));
+        }
+    }
+
+    /**
+     * Creates a filter that accepts the commits that changed the given paths, the same way as the filter used by
+     * {@link #count(Paths, AnyObjectId, AnyObjectId)}.
+     *
+     * @param paths The paths of the project, which must have been given to the constructor
+     * @param walk  The walk the filter will be used in
+     * @return The filter
+     */
+    RevFilter filter(Paths paths, RevWalk walk) {
+        var index = this.indices.get(paths);
+        if (index == null) throw new IllegalArgumentException("Unknown project paths: " + paths);
+
+        return new Filter(index, ChangedPathRevFilter.create(walk, this.graph, paths.include(), paths.exclude()));
+    }
+
+    /** @return {@code true} if the given commit changed the paths of the given project */
+    private boolean isChanged(RevWalk walk, RevCommit c, int project) throws IOException {
+        if (!this.loaded) this.load();
+
+        var entry = this.changes.get(c);
+        if (entry == null) this.changes.add(entry = new Entry(c));
+
+        // a merge in the walk may have cut this commit's parents, which makes it compare against the empty tree
+        var root = c.getParentCount() == 0;
+        var bits = root ? entry.root : entry.parent;
+        if (bits == null) {
+            bits = this.diff(walk, c);
+            if (root) {
+                entry.root = bits;
+            } else {
+                entry.parent = bits;
+                this.added.add(entry);
+            }
+        }
+
+        return (bits[project >>> 6] & (1L << project)) != 0;
+    }
+
+    /** Diffs the given commit against its only parent (or the empty tree) for the paths of every project. */
+    private long[] diff(RevWalk walk, RevCommit c) throws IOException {
+        var bits = new long[this.words];
+        var candidates = new ArrayList<Project>(this.projects.size());
+        var bloom = this.graph != null && c.getParentCount() == 1 ? ChangedPathRevFilter.getBloomFilter(this.graph, c) : null;
+        for (var project : this.projects) {
+            if (bloom == null || project.bloomPaths == null || !ChangedPathRevFilter.isUnchanged(bloom, project.bloomPaths))
+                candidates.add(project);
+        }
+        if (candidates.isEmpty()) return bits;
+
+        var tw = this.treeWalk;
+        tw.setFilter(candidates.size() == this.projects.size() ? this.filter : createFilter(candidates));
+        if (c.getParentCount() == 0) {
+            tw.reset(c.getTree());
+        } else {
+            var parent = c.getParent(0);
+            walk.parseHeaders(parent);
+            tw.reset(parent.getTree(), c.getTree());
+        }
+
+        while (!candidates.isEmpty() && tw.next()) {
+            var path = tw.getPathString();
+            for (int i = candidates.size() - 1; i >= 0; i--) {
+                var project = candidates.get(i);
+                if (!project.matches(path)) continue;
+
+                bits[project.index >>> 6] |= 1L << project.index;
+                candidates.remove(i);
+            }
+        }
+
+        return bits;
+    }
+
+    /** Creates a tree filter that accepts every changed path that is in at least one of the given projects. */
+    private static TreeFilter createFilter(List<Project> projects) {
+        if (projects.isEmpty()) return TreeFilter.ANY_DIFF;
+
+        var includes = new LinkedHashSet<String>();
+        for (var project : projects) {
+            // a project without included paths can be changed anywhere
+            if (project.include.length == 0) return TreeFilter.ANY_DIFF;
+
+            for (var path : project.include)
+                includes.add(path);
+        }
+
+        return AndTreeFilter.create(PathFilterGroup.createFromStrings(includes), TreeFilter.ANY_DIFF);
+    }
+
+
+    /* INDEX */
+
+    /** Loads the index, which is deferred until the first commit needs to be checked. */
+    private void load() {
+        this.loaded = true;
+        if (this.cache != null)
+            this.indexed = Boolean.TRUE.equals(this.cache.read(this.indexName, VERSION, this::readIndex));
+    }
+
+    private int hashProjects() {
+        int hash = 1;
+        for (var project : this.projects) {
+            hash = 31 * hash + Arrays.hashCode(project.include);
+            hash = 31 * hash + Arrays.hashCode(project.exclude);
+        }
+        return hash;
+    }
+
+    /**
+     * Reads the index into {@link #changes}.
+     *
+     * @return {@code true} if the index can be appended to, {@code false} if it must be rewritten, or {@code null} if
+     * it is for different project paths
+     */
+    private @Nullable Boolean readIndex(DataInputStream in) throws IOException {
+        if (in.readInt() != this.projects.size()) return null;
+        for (var project : this.projects) {
+            if (!Arrays.equals(project.include, readStrings(in)) || !Arrays.equals(project.exclude, readStrings(in)))
+                return null;
+        }
+
+        var raw = new byte[Constants.OBJECT_ID_LENGTH];
+        while (true) {
+            int first = in.read();
+            if (first < 0) return true;
+
+            var bits = new long[this.words];
+            try {
+                raw[0] = (byte) first;
+                in.readFully(raw, 1, raw.length - 1);
+                for (int i = 0; i < bits.length; i++)
+                    bits[i] = in.readLong();
+            } catch (EOFException e) {
+                // the last row is incomplete, so rows appended after it would be misaligned
+                return false;
+            }
+
+            var id = ObjectId.fromRaw(raw);
+            if (this.changes.get(id) == null) {
+                var entry = new Entry(id);
+                entry.parent = bits;
+                this.changes.add(entry);
+            }
+        }
+    }
+
+    private void writeIndex(DataOutputStream out) throws IOException {
+        out.writeInt(this.projects.size());
+        for (var project : this.projects) {
+            writeStrings(out, project.include);
+            writeStrings(out, project.exclude);
+        }
+
+        for (var entry : this.changes) {
+            if (entry.parent != null) writeRow(out, entry);
+        }
+    }
+
+    private static void writeRow(DataOutputStream out, Entry entry) throws IOException {
+        GitCache.writeId(out, entry);
+        for (long word : entry.parent)
+            out.writeLong(word);
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        var ret = new String[in.readInt()];
+        for (int i = 0; i < ret.length; i++)
+            ret[i] = in.readUTF();
+        return ret;
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+        out.writeInt(strings.length);
+        for (var s : strings)
+            out.writeUTF(s);
+    }
+
+    /** Stores the rows of the commits that were diffed by this instance in the index. */
+    @Override
+    public void close() {
+        this.treeWalk.close();
+        this.reader.close();
+
+        var cache = this.cache;
+        if (cache == null || !this.loaded || (this.indexed && this.added.isEmpty())) return;
+
+        if (this.indexed) {
+            cache.append(this.indexName, out -> {
+                for (var entry : this.added)
+                    writeRow(out, entry);
+            });
+        } else {
+            cache.write(this.indexName, VERSION, this::writeIndex);
+            cache.deleteOthers(this.indexName, name -> name.startsWith("changes-") && name.endsWith(".idx"));
+        }
+    }
+
+    /**
+     * The paths of a project to count commits in, with the same meaning as in
+     * {@link GitUtils#countCommits(org.eclipse.jgit.api.Git, org.eclipse.jgit.lib.ObjectId, Iterable, Iterable)}.
+     *
+     * @param include The paths to include
+     * @param exclude The paths to exclude
+     */
+    record Paths(Collection<String> include, Collection<String> exclude) { }
+
+    private static final class Project {
+        private final int index;
+        private final String[] include;
+        private final String[] exclude;
+        private final byte @Nullable [][] bloomPaths;
+
+        private Project(int index, Paths paths) {
+            this.index = index;
+            this.include = normalize(paths.include());
+            this.exclude = normalize(paths.exclude());
+
+            var includes = new ArrayList<PathFilter>(this.include.length);
+            for (var path : this.include)
+                includes.add(PathFilter.create(path));
+            this.bloomPaths = ChangedPathRevFilter.bloomPaths(includes);
+        }
+
+        private static String[] normalize(Collection<String> paths) {
+            var ret = new String[paths.size()];
+            int i = 0;
+            for (var path : paths)
+                ret[i++] = PathFilter.create(path).getPath();
+            return ret;
+        }
+
+        private boolean matches(String path) {
+            if (this.include.length > 0 && !contains(this.include, path)) return false;
+
+            return !contains(this.exclude, path);
+        }
+
+        private static boolean contains(String[] dirs, String path) {
+            for (var dir : dirs) {
+                if (path.startsWith(dir) && (path.length() == dir.length() || path.charAt(dir.length()) == '/'))
+                    return true;
+            }
+
+            return false;
+        }
+    }
+
+    private final class Filter extends RevFilter {
+        private final int project;
+        private final RevFilter merges;
+
+        private Filter(int project, RevFilter merges) {
+            this.project = project;
+            this.merges = merges;
+        }
+
+        @Override
+        public boolean include(RevWalk walker, RevCommit c) throws IOException {
+            return c.getParentCount() > 1
+                ? this.merges.include(walker, c)
+                : ChangedProjects.this.isChanged(walker, c, this.project);
+        }
+
+        @Override
+        public boolean requiresCommitBody() {
+            return false;
+        }
+
+        @Override
+        public RevFilter clone() {
+            return new Filter(this.project, this.merges.clone());
+        }
+    }
+
+    private static final class Entry extends ObjectIdOwnerMap.Entry {
+        private long @Nullable [] parent;
+        private long @Nullable [] root;
+
+        private Entry(AnyObjectId id) {
+            super(id);
+        }
+    }
+}
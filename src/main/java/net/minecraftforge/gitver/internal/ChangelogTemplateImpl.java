@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import net.minecraftforge.gitver.api.ChangelogTemplate;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * A changelog template, with each of its parts compiled into a {@linkplain Plan render plan} of literal segments and
+ * field slots.
+ * <p>
+ * Plans are cached for the lifetime of the process by their part and source, so building the same template again,
+ * such as once for each project in a build, does not parse it again.
+ *
+ * @see ChangelogTemplate
+ */
+public final class ChangelogTemplateImpl implements ChangelogTemplate {
+    private static final Map<Key, Plan> PLANS = new ConcurrentHashMap<>();
+
+    private final Plan header;
+    private final Plan versionHeader;
+    private final Plan commit;
+    private final Plan tagLink;
+    private final @Nullable Plan pullRequestLink;
+    private final Plan tagFooter;
+    private final @Nullable UnaryOperator<String> escaper;
+    private final @Nullable String messageSeparator;
+
+    public ChangelogTemplateImpl(String header, String versionHeader, String commit, String tagLink, @Nullable String pullRequestLink, String tagFooter, @Nullable UnaryOperator<String> escaper, @Nullable String messageSeparator) {
+        this.header = compile(Part.HEADER, header);
+        this.versionHeader = compile(Part.VERSION_HEADER, versionHeader);
+        this.commit = compile(Part.COMMIT, commit);
+        this.tagLink = compile(Part.TAG_LINK, tagLink);
+        this.pullRequestLink = pullRequestLink != null ? compile(Part.PULL_REQUEST_LINK, pullRequestLink) : null;
+        this.tagFooter = compile(Part.TAG_FOOTER, tagFooter);
+        this.escaper = escaper;
+        this.messageSeparator = messageSeparator;
+    }
+
+    private static Plan compile(Part part, String source) {
+        return PLANS.computeIfAbsent(new Key(part, source), Plan::compile);
+    }
+
+    /**
+     * Creates a renderer that writes a changelog with this template.
+     *
+     * @param out The output to write the changelog to
+     * @param url The URL of the repository
+     * @return The renderer
+     */
+    Renderer renderer(Appendable out, String url) {
+        return new Renderer(this, out, url);
+    }
+
+    /** The fields that can be used in templates. */
+    private enum Field {
+        NAME, URL, START, END, VERSION, UNDERLINE, TAG, HASH, MESSAGE, NUMBER;
+
+        private final String key = this.name().toLowerCase(Locale.ROOT);
+    }
+
+    /** The parts of a template, and the fields each of them can use. */
+    private enum Part {
+        HEADER(Field.NAME, Field.URL, Field.START, Field.END),
+        VERSION_HEADER(Field.VERSION, Field.UNDERLINE),
+        COMMIT(Field.VERSION, Field.HASH, Field.MESSAGE),
+        TAG_LINK(Field.VERSION, Field.TAG, Field.URL),
+        PULL_REQUEST_LINK(Field.NUMBER, Field.URL),
+        TAG_FOOTER;
+
+        private final Set<Field> fields = EnumSet.noneOf(Field.class);
+
+        Part(Field... fields) {
+            this.fields.addAll(Arrays.asList(fields));
+        }
+    }
+
+    private record Key(Part part, String source) { }
+
+    /**
+     * A compiled template part, which alternates between literal segments and field slots. There is always one more
+     * segment than there are slots, so a plan starts and ends with a (possibly empty) segment.
+     */
+    private static final class Plan {
+        private final Part part;
+        private final String[] segments;
+        private final Field[] slots;
+        /** The column after each segment if it contains a line break, or {@code -1} if it does not. */
+        private final int[] columns;
+
+        private Plan(Part part, String[] segments, Field[] slots) {
+            this.part = part;
+            this.segments = segments;
+            this.slots = slots;
+            this.columns = new int[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                var newline = segments[i].lastIndexOf('\n');
+                this.columns[i] = newline >= 0 ? segments[i].length() - newline - 1 : -1;
+            }
+        }
+
+        private static Plan compile(Key key) {
+            var source = key.source;
+            var segments = new ArrayList<String>();
+            var slots = new ArrayList<Field>();
+
+            var segment = new StringBuilder();
+            for (int i = 0; i < source.length(); i++) {
+                var c = source.charAt(i);
+                if (c != '{') {
+                    segment.append(c);
+                } else if (source.startsWith("{", i + 1)) {
+                    segment.append('{');
+                    i++;
+                } else {
+                    var end = source.indexOf('}', i + 1);
+                    if (end < 0)
+                        throw new IllegalArgumentException("Unclosed field at index %d in changelog template: %s".formatted(i, source));
+
+                    var name = source.substring(i + 1, end);
+                    var field = find(key.part, name);
+                    if (field == null)
+                        throw new IllegalArgumentException("Unknown field '%s' in changelog template: %s".formatted(name, source));
+
+                    segments.add(segment.toString());
+                    segment.setLength(0);
+                    slots.add(field);
+                    i = end;
+                }
+            }
+            segments.add(segment.toString());
+
+            return new Plan(key.part, segments.toArray(new String[0]), slots.toArray(new Field[0]));
+        }
+
+        private static @Nullable Field find(Part part, String name) {
+            for (var field : part.fields) {
+                if (field.key.equals(name)) return field;
+            }
+
+            return null;
+        }
+
+        /** @return The column after appending the segment */
+        private int append(Appendable out, int segment, int column) throws IOException {
+            var s = this.segments[segment];
+            out.append(s);
+            return this.columns[segment] >= 0 ? this.columns[segment] : column + s.length();
+        }
+    }
+
+    /**
+     * Writes a changelog with a template. The values of the fields are held by the renderer while a part is rendered,
+     * so no objects are created for each commit.
+     */
+    static final class Renderer {
+        private final ChangelogTemplateImpl template;
+        private final Appendable out;
+        private final String url;
+
+        // the values of the fields
+        private String name = "";
+        private String start = "";
+        private String end = "";
+        private String version = "";
+        private int width;
+        private boolean tagged;
+        private @Nullable AnyObjectId hash;
+        private String message = "";
+        private int numberStart, numberEnd;
+
+        private Renderer(ChangelogTemplateImpl template, Appendable out, String url) {
+            this.template = template;
+            this.out = out;
+            this.url = url;
+        }
+
+        /**
+         * Writes the header of the changelog.
+         *
+         * @param name  The name of the changelog, which is the current branch
+         * @param start The ID of the first commit
+         * @param end   The ID of the last commit
+         * @throws IOException If an I/O error occurs when writing the changelog
+         */
+        void header(String name, String start, String end) throws IOException {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.render(this.template.header, 0);
+        }
+
+        /**
+         * Writes the header of an identifiable-version.
+         *
+         * @param version The identifiable-version
+         * @throws IOException If an I/O error occurs when writing the changelog
+         */
+        void versionHeader(String version) throws IOException {
+            this.version = version;
+            this.render(this.template.versionHeader, 0);
+        }
+
+        /**
+         * Writes a commit, followed by the tag footer if it is tagged.
+         *
+         * @param version The version of the commit
+         * @param width   The width to pad the version to
+         * @param tagged  Whether the commit is tagged
+         * @param hash    The ID of the commit
+         * @param message The full commit message
+         * @throws IOException If an I/O error occurs when writing the changelog
+         */
+        void commit(String version, int width, boolean tagged, AnyObjectId hash, String message) throws IOException {
+            this.version = version;
+            this.width = width;
+            this.tagged = tagged;
+            this.hash = hash;
+            this.message = message;
+            this.render(this.template.commit, 0);
+
+            if (tagged) this.render(this.template.tagFooter, 0);
+        }
+
+        private int render(Plan plan, int column) throws IOException {
+            column = plan.append(this.out, 0, column);
+            for (int i = 0; i < plan.slots.length; i++) {
+                column = this.append(plan, plan.slots[i], column);
+                column = plan.append(this.out, i + 1, column);
+            }
+
+            return column;
+        }
+
+        private int append(Plan plan, Field field, int column) throws IOException {
+            return switch (field) {
+                case NAME -> this.append(this.name, column);
+                case URL -> this.append(this.url, column);
+                case START -> this.append(this.start, column);
+                case END -> this.append(this.end, column);
+                case TAG -> this.append(this.version, column);
+                case HASH -> this.append(this.hash != null ? this.hash.name() : "", column);
+                case VERSION -> {
+                    if (plan.part == Part.VERSION_HEADER) yield this.append(this.version, column);
+                    if (plan.part == Part.COMMIT && this.tagged) yield this.render(this.template.tagLink, column);
+
+                    column = this.append(this.version, column);
+                    for (int i = this.version.length(); i < this.width; i++, column++)
+                        this.out.append(' ');
+                    yield column;
+                }
+                case UNDERLINE -> {
+                    for (int i = this.version.codePointCount(0, this.version.length()); i > 0; i--, column++)
+                        this.out.append('=');
+                    yield column;
+                }
+                case MESSAGE -> {
+                    // the column after a message of multiple lines is not tracked, which only matters for the message
+                    this.appendMessage(column);
+                    yield column;
+                }
+                case NUMBER -> {
+                    this.appendText(this.message, this.numberStart, this.numberEnd);
+                    yield column + this.numberEnd - this.numberStart;
+                }
+            };
+        }
+
+        private int append(String value, int column) throws IOException {
+            this.appendText(value, 0, value.length());
+            return column + value.length();
+        }
+
+        /** Appends a part of a field value, escaping it if the template has an escaper. */
+        private void appendText(String value, int start, int end) throws IOException {
+            var escaper = this.template.escaper;
+            if (escaper == null)
+                this.out.append(value, start, end);
+            else if (start < end)
+                this.out.append(escaper.apply(value.substring(start, end)));
+        }
+
+        /**
+         * Appends the commit message in a single pass over it. Signed-off-by lines and blank lines are left out, and
+         * every line after the first is indented so that it lines up with the first, unless the template joins them
+         * with a separator of its own.
+         * <p>
+         * If the template links pull requests, the first pull request number written as {@code (#123)} is found
+         * first, and every {@code #123} in the message is then replaced with the link.
+         *
+         * @param indent The number of spaces to indent every line after the first with
+         */
+        private void appendMessage(int indent) throws IOException {
+            var message = this.message;
+            var out = this.out;
+            var separator = this.template.messageSeparator;
+
+            //Trim the message the same way as String.trim().
+            int start = 0, end = message.length();
+            while (start < end && message.charAt(start) <= ' ') start++;
+            while (end > start && message.charAt(end - 1) <= ' ') end--;
+
+            //Find the pull request number, which is only ever in a line that is kept.
+            int pullStart = -1, pullEnd = -1;
+            for (int lineStart = start, lineEnd; this.template.pullRequestLink != null && pullStart < 0 && lineStart < end; lineStart = lineEnd + 1) {
+                lineEnd = lineEnd(message, lineStart, end);
+                if (!isKeptLine(message, lineStart, lineEnd)) continue;
+
+                for (int i = message.indexOf("(#", lineStart); i >= 0 && i < lineEnd; i = message.indexOf("(#", i + 1)) {
+                    int digits = i + 2;
+                    while (digits < lineEnd && message.charAt(digits) >= '0' && message.charAt(digits) <= '9') digits++;
+                    if (digits > i + 2 && digits < lineEnd && message.charAt(digits) == ')') {
+                        pullStart = i + 1;
+                        pullEnd = digits;
+                        break;
+                    }
+                }
+            }
+            this.numberStart = pullStart + 1;
+            this.numberEnd = pullEnd;
+
+            //Write the kept lines, trimming the start of the first and the end of the last.
+            var first = true;
+            int pendingStart = 0, pendingEnd = 0; //The trailing whitespace of the previous line, only written if another line follows.
+            for (int lineStart = start, lineEnd; lineStart < end; lineStart = lineEnd + 1) {
+                lineEnd = lineEnd(message, lineStart, end);
+                if (!isKeptLine(message, lineStart, lineEnd)) continue;
+
+                int from = lineStart, to = lineEnd;
+                if (first) {
+                    while (message.charAt(from) <= ' ') from++;
+                    first = false;
+                } else if (separator != null) {
+                    out.append(separator);
+                } else {
+                    this.appendText(message, pendingStart, pendingEnd);
+                    out.append('\n');
+                    for (int i = 0; i < indent; i++)
+                        out.append(' ');
+                }
+                while (message.charAt(to - 1) <= ' ') to--;
+                pendingStart = to;
+                pendingEnd = lineEnd;
+
+                if (pullStart < 0) {
+                    this.appendText(message, from, to);
+                    continue;
+                }
+
+                //Replace every occurrence of the pull request number with a link.
+                int pullLength = pullEnd - pullStart;
+                int text = from;
+                for (int i = from; i < to; ) {
+                    if (i + pullLength <= to && message.regionMatches(i, message, pullStart, pullLength)) {
+                        this.appendText(message, text, i);
+                        this.render(this.template.pullRequestLink, 0);
+                        i += pullLength;
+                        text = i;
+                    } else {
+                        i++;
+                    }
+                }
+                this.appendText(message, text, to);
+            }
+        }
+
+        private static int lineEnd(String message, int lineStart, int end) {
+            int lineEnd = message.indexOf('\n', lineStart);
+            return lineEnd >= 0 && lineEnd < end ? lineEnd : end;
+        }
+
+        /** @return {@code true} if the line is not blank and is not a Signed-off-by line */
+        private static boolean isKeptLine(String message, int lineStart, int lineEnd) {
+            if (lineEnd - lineStart >= 15 && message.startsWith("Signed-off-by: ", lineStart)) return false;
+
+            for (int i = lineStart; i < lineEnd; i++) {
+                if (message.charAt(i) > ' ') return true;
+            }
+            return false;
+        }
+    }
+}
@@ -6,12 +6,13 @@ package net.minecraftforge.gitver.internal;
 
 import net.minecraftforge.gitver.api.GitVersionException;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
 
 /**
  * A provider for the commit count of a given tag. This is done in GitVersion in
- * {@link GitVersionImpl#getSubprojectCommitCount(Git, String)} by using
- * {@link GitUtils#countCommits(Git, String, Iterable, Iterable) GitUtils.countCommits(Git, String, Iterable,
- * Iterable)}.
+ * {@link GitVersionImpl#getSubprojectCommitCount(Git, String, ObjectId, ChangedProjects)} by using
+ * {@link GitUtils#countCommitsFromTo(Git, ObjectId, ObjectId, Iterable, Iterable) GitUtils.countCommitsFromTo(Git,
+ * ObjectId, ObjectId, Iterable, Iterable)}.
  */
 @SuppressWarnings("JavadocReference")
 @FunctionalInterface
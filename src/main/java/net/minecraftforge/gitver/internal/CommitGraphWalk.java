@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraphLoader;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A commit walker backed by the repository's commit-graph file ({@code objects/info/commit-graph}).
+ * <p>
+ * Parents and generation numbers of commits in the commit-graph are read straight from the file, without parsing any
+ * commit objects. Commits made after the commit-graph was last written are parsed normally and given generation
+ * numbers on the fly, so a slightly outdated commit-graph can still be used. Every commit is addressed by an
+ * {@code int} node: its position in the commit-graph, or a position after the end of the commit-graph if it is not in
+ * it.
+ *
+ * @see #open(Repository)
+ */
+final class CommitGraphWalk implements AutoCloseable {
+    /** The loaded commit-graphs, keyed by file. They are shared by every walk in this process. */
+    private static final Map<File, Loaded> GRAPHS = new ConcurrentHashMap<>();
+
+    private static final byte INTERESTING = 1;
+    private static final byte UNINTERESTING = 2;
+    private static final byte QUEUED = 4;
+
+    private final CommitGraph graph;
+    private final int graphSize;
+    private final RevWalk walk;
+
+    // commits that are not in the commit-graph
+    private final ObjectIdOwnerMap<Extra> extraIds = new ObjectIdOwnerMap<>();
+    private final List<Extra> extras = new ArrayList<>();
+
+    private CommitGraphWalk(Repository repository, CommitGraph graph) {
+        this.graph = graph;
+        this.graphSize = (int) graph.getCommitCnt();
+        this.walk = new RevWalk(repository);
+        this.walk.setRetainBody(false);
+    }
+
+    /**
+     * Opens a commit-graph walk for the given repository.
+     *
+     * @param repository The repository
+     * @return The walk, or {@code null} if the repository has no usable commit-graph
+     */
+    static @Nullable CommitGraphWalk open(Repository repository) {
+        var graph = load(repository);
+        return graph != null ? new CommitGraphWalk(repository, graph) : null;
+    }
+
+    /**
+     * Loads the commit-graph of the given repository, including its changed-path Bloom filters if it has them.
+     * <p>
+     * Git does not use the commit-graph in shallow clones or in repositories with grafts or replace refs, as the
+     * parents it stores would not match what the repository reports. The same applies here.
+     *
+     * @param repository The repository
+     * @return The commit-graph, or {@code null} if the repository has no usable commit-graph
+     */
+    static @Nullable CommitGraph load(Repository repository) {
+        try {
+            if (!(repository.getObjectDatabase() instanceof ObjectDirectory objects)) return null;
+
+            var file = new File(objects.getDirectory(), "info/commit-graph");
+            if (!file.isFile()
+                || new File(repository.getDirectory(), Constants.SHALLOW).exists()
+                || new File(repository.getCommonDirectory(), "info/grafts").exists()
+                || !repository.getRefDatabase().getRefsByPrefix(Constants.R_REFS + "replace/").isEmpty())
+                return null;
+
+            var attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            var loaded = GRAPHS.get(file);
+            var graph = loaded != null && loaded.matches(attributes) ? loaded.graph.get() : null;
+            if (graph == null) {
+                try (InputStream in = Files.newInputStream(file.toPath())) {
+                    graph = CommitGraphLoader.read(in, true);
+                }
+                GRAPHS.put(file, new Loaded(attributes.size(), attributes.lastModifiedTime().toMillis(), new SoftReference<>(graph)));
+            }
+
+            return graph;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Counts the commits reachable from {@code to} that are not reachable from the parents of {@code from}, minus one.
+     * This matches {@link GitUtils#countCommits(org.eclipse.jgit.api.Git, ObjectId, Iterable, Iterable)} without any
+     * paths.
+     * <p>
+     * Commits are visited in descending generation order, so each commit is only visited once all of its children
+     * have been, and the walk stops as soon as only excluded commits are left to visit.
+     *
+     * @param from The commit to start counting from (the oldest)
+     * @param to   The commit to count to (the youngest)
+     * @return The commit count, or {@code -2} if the commit-graph cannot be used to count these commits
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     */
+    int count(AnyObjectId from, AnyObjectId to) throws IOException {
+        int head = this.lookup(to), tail = this.lookup(from);
+        if (head < 0 || tail < 0 || this.generation(head) == 0) return -2;
+
+        var flags = new byte[this.graphSize + this.extras.size()];
+        var queue = new Queue();
+        int interesting = 0;
+
+        flags[head] = INTERESTING | QUEUED;
+        queue.add(head, this.generation(head));
+        interesting++;
+        for (int parent : this.parents(tail)) {
+            if (flags[parent] == (INTERESTING | QUEUED)) interesting--;
+            if ((flags[parent] & QUEUED) == 0) queue.add(parent, this.generation(parent));
+            flags[parent] |= UNINTERESTING | QUEUED;
+        }
+
+        int count = -1;
+        while (interesting > 0) {
+            int node = queue.next();
+            var flag = flags[node];
+            if ((flag & UNINTERESTING) == 0) {
+                interesting--;
+                count++;
+            }
+
+            for (int parent : this.parents(node)) {
+                var parentFlag = flags[parent];
+                if ((parentFlag & QUEUED) == 0) {
+                    int generation = this.generation(parent);
+                    if (generation == 0) return -2; // written without generation numbers
+
+                    queue.add(parent, generation);
+                    if ((flag & UNINTERESTING) == 0) interesting++;
+                } else if ((flag & UNINTERESTING) != 0 && (parentFlag & UNINTERESTING) == 0) {
+                    interesting--;
+                }
+
+                flags[parent] = (byte) (parentFlag | flag | QUEUED);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the node of the given commit, parsing it and any of its ancestors that are not in the commit-graph.
+     *
+     * @param id The commit ID
+     * @return The node, or {@code -1} if the commit does not exist
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     */
+    int lookup(AnyObjectId id) throws IOException {
+        int position = this.graph.findGraphPosition(id);
+        if (position >= 0) return position;
+
+        var extra = this.extraIds.get(id);
+        if (extra != null) return extra.node;
+
+        try {
+            return this.parse(this.walk.parseCommit(id));
+        } catch (MissingObjectException e) {
+            return -1;
+        }
+    }
+
+    /** Adds the given commit and its ancestors outside of the commit-graph, parents first. */
+    private int parse(RevCommit commit) throws IOException {
+        var stack = new ArrayDeque<RevCommit>();
+        stack.push(commit);
+        while (!stack.isEmpty()) {
+            var c = stack.peek();
+            if (this.extraIds.contains(c)) {
+                stack.pop();
+                continue;
+            }
+
+            this.walk.parseHeaders(c);
+            var parents = new int[c.getParentCount()];
+            boolean ready = true;
+            for (int i = 0; i < parents.length; i++) {
+                var p = c.getParent(i);
+                int position = this.graph.findGraphPosition(p);
+                if (position < 0) {
+                    var extra = this.extraIds.get(p);
+                    if (extra == null) {
+                        stack.push(p);
+                        ready = false;
+                        continue;
+                    }
+                    position = extra.node;
+                }
+                parents[i] = position;
+            }
+            if (!ready) continue;
+
+            int generation = 0;
+            for (int parent : parents)
+                generation = Math.max(generation, this.generation(parent));
+
+            var extra = new Extra(c, this.graphSize + this.extras.size(), parents, generation + 1);
+            this.extraIds.add(extra);
+            this.extras.add(extra);
+            stack.pop();
+        }
+
+        return this.extraIds.get(commit).node;
+    }
+
+    /**
+     * @param node The node
+     * @return The nodes of the given node's parents
+     */
+    int[] parents(int node) {
+        return node < this.graphSize
+            ? this.graph.getCommitData(node).getParents()
+            : this.extras.get(node - this.graphSize).parents;
+    }
+
+    /**
+     * @param node The node
+     * @return The generation number (topological level) of the given node, or {@code 0} if the commit-graph was
+     * written without generation numbers
+     */
+    int generation(int node) {
+        return node < this.graphSize
+            ? this.graph.getCommitData(node).getGeneration()
+            : this.extras.get(node - this.graphSize).generation;
+    }
+
+    /**
+     * @param node The node
+     * @return The commit ID of the given node
+     */
+    ObjectId id(int node) {
+        return node < this.graphSize
+            ? this.graph.getObjectId(node)
+            : this.extras.get(node - this.graphSize).copy();
+    }
+
+    @Override
+    public void close() {
+        this.walk.close();
+    }
+
+    private record Loaded(long size, long modified, SoftReference<CommitGraph> graph) {
+        private boolean matches(BasicFileAttributes attributes) {
+            return this.size == attributes.size() && this.modified == attributes.lastModifiedTime().toMillis();
+        }
+    }
+
+    private static final class Extra extends ObjectIdOwnerMap.Entry {
+        private final int node;
+        private final int[] parents;
+        private final int generation;
+
+        private Extra(AnyObjectId id, int node, int[] parents, int generation) {
+            super(id);
+            this.node = node;
+            this.parents = parents;
+            this.generation = generation;
+        }
+    }
+
+    /** A max-heap of nodes ordered by generation number, without boxing. */
+    private static final class Queue {
+        private long[] heap = new long[64];
+        private int size;
+
+        private void add(int node, int generation) {
+            if (this.size == this.heap.length)
+                this.heap = Arrays.copyOf(this.heap, this.size * 2);
+
+            var key = ((long) generation << 32) | (node & 0xFFFFFFFFL);
+            int i = this.size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (this.heap[parent] >= key) break;
+                this.heap[i] = this.heap[parent];
+                i = parent;
+            }
+            this.heap[i] = key;
+        }
+
+        private int next() {
+            var top = this.heap[0];
+            var last = this.heap[--this.size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= this.size) break;
+                if (child + 1 < this.size && this.heap[child + 1] > this.heap[child]) child++;
+                if (this.heap[child] <= last) break;
+                this.heap[i] = this.heap[child];
+                i = child;
+            }
+            this.heap[i] = last;
+            return (int) top;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The commits of a changelog and their versions, where each commit is addressed by a dense {@code int} index: its
+ * position in the log, youngest to oldest.
+ * <p>
+ * Each commit has a version, which is the tag of the nearest older tagged commit and the number of commits since it,
+ * and a primary version (the identifiable-version), which is the tag itself. Commits older than every tag are
+ * pre-releases of the oldest tag. Instead of a string per commit, the table stores the index of its tag in a list of
+ * interned names along with its offset in parallel arrays, so the version string is only built when it is rendered.
+ * The width of the widest version of each primary version is tracked as well, so the commit messages of a release
+ * line up under each other.
+ *
+ * @see #of(Iterable, TagIndex)
+ */
+final class CommitTable {
+    private final RevCommit[] commits;
+    private final boolean[] tagged;
+
+    // versions
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIndex = new HashMap<>();
+    private final int[] bases;
+    private final int[] offsets;
+    private final boolean[] preReleases;
+
+    // primary versions, -1 if there is none
+    private final int[] primaryVersions;
+    private int[] widths = new int[8];
+
+    private CommitTable(RevCommit[] commits) {
+        int size = commits.length;
+        this.commits = commits;
+        this.tagged = new boolean[size];
+        this.bases = new int[size];
+        this.offsets = new int[size];
+        this.preReleases = new boolean[size];
+        this.primaryVersions = new int[size];
+    }
+
+    /**
+     * Builds the table of the given commits, determining their versions in a single pass from the oldest to the
+     * youngest.
+     *
+     * @param log  The commits from youngest to oldest
+     * @param tags The tag index holding the identifiable-version names
+     * @return The commit table
+     */
+    static CommitTable of(Iterable<RevCommit> log, TagIndex tags) {
+        var list = new ArrayList<RevCommit>();
+        log.forEach(list::add);
+
+        var commits = list.toArray(new RevCommit[0]);
+        int size = commits.length;
+        var ret = new CommitTable(commits);
+
+        // the commits at and after this index are older than every tag
+        int preReleases = 0;
+        int firstVersion = -1;
+        int currentVersion = -1;
+        int offset = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            var version = tags.getTag(commits[i]);
+            if (version != null) {
+                ret.tagged[i] = true;
+                currentVersion = ret.intern(version);
+                offset = 0;
+
+                if (firstVersion < 0) {
+                    firstVersion = currentVersion;
+                    preReleases = i + 1;
+                }
+            } else {
+                offset++;
+            }
+
+            if (currentVersion >= 0) {
+                boolean empty = ret.names.get(currentVersion).isEmpty();
+                ret.set(i, empty ? firstVersion : currentVersion, offset, empty, currentVersion);
+            }
+        }
+
+        // repositories without properly tagged versions are all 1.0-pre-x for now
+        int preReleaseVersion = ret.intern(firstVersion >= 0 ? ret.names.get(firstVersion) : "0.0");
+        int preReleasePrimaryVersion = firstVersion >= 0 ? ret.intern(ret.names.get(firstVersion) + "-pre") : tags.isEmpty() ? ret.intern("1.0-pre") : -1;
+        for (int i = preReleases; i < size; i++)
+            ret.set(i, preReleaseVersion, size - i, true, preReleasePrimaryVersion);
+
+        return ret;
+    }
+
+    private int intern(String name) {
+        var index = this.nameIndex.get(name);
+        if (index != null) return index;
+
+        index = this.names.size();
+        this.names.add(name);
+        this.nameIndex.put(name, index);
+        return index;
+    }
+
+    private void set(int index, int base, int offset, boolean preRelease, int primaryVersion) {
+        this.bases[index] = base;
+        this.offsets[index] = offset;
+        this.preReleases[index] = preRelease;
+        this.primaryVersions[index] = primaryVersion;
+        if (primaryVersion < 0) return;
+
+        // the width of the version, if it starts with its primary version
+        var baseName = this.names.get(base);
+        var primaryName = this.names.get(primaryVersion);
+        int width;
+        if (!preRelease) {
+            width = baseName.length() + 1 + digits(offset);
+        } else if (primaryName.length() <= baseName.length()
+            ? baseName.startsWith(primaryName)
+            : primaryName.startsWith(baseName) && "-pre-".regionMatches(0, primaryName, baseName.length(), primaryName.length() - baseName.length())) {
+            width = baseName.length() + 5 + digits(offset);
+        } else {
+            return;
+        }
+
+        if (primaryVersion >= this.widths.length)
+            this.widths = Arrays.copyOf(this.widths, Math.max(this.widths.length * 2, primaryVersion + 1));
+        this.widths[primaryVersion] = Math.max(this.widths[primaryVersion], width);
+    }
+
+    private static int digits(int i) {
+        int digits = 1;
+        while (i >= 10) {
+            i /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /** @return The number of commits in this table */
+    int size() {
+        return this.commits.length;
+    }
+
+    /**
+     * @param index The index of the commit
+     * @return The commit
+     */
+    RevCommit getCommit(int index) {
+        return this.commits[index];
+    }
+
+    /**
+     * @param index The index of the commit
+     * @return {@code true} if the commit has a tag
+     */
+    boolean isTagged(int index) {
+        return this.tagged[index];
+    }
+
+    /**
+     * @param index The index of the commit
+     * @return The version of the commit
+     */
+    String getVersion(int index) {
+        return this.names.get(this.bases[index]) + (this.preReleases[index] ? "-pre-" : ".") + this.offsets[index];
+    }
+
+    /**
+     * @param index The index of the commit
+     * @return The primary version of the commit, or {@code null} if there are no tags to determine it from
+     */
+    @Nullable String getPrimaryVersion(int index) {
+        int primaryVersion = this.primaryVersions[index];
+        return primaryVersion >= 0 ? this.names.get(primaryVersion) : null;
+    }
+
+    /**
+     * @param index The index of the commit
+     * @return The width that fits every version of the commit's primary version
+     */
+    int getWidth(int index) {
+        int primaryVersion = this.primaryVersions[index];
+        return primaryVersion >= 0 && primaryVersion < this.widths.length ? this.widths[primaryVersion] : 0;
+    }
+}
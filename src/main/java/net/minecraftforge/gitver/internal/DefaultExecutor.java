@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * The executor that asynchronous GitVersion calls run on if no other executor is given.
+ * <p>
+ * Every task runs on a new virtual thread if the runtime supports them (Java 21 and newer). Since GitVersion targets
+ * Java 17, the executor is looked up reflectively, and falls back to a cached pool of daemon threads otherwise.
+ */
+final class DefaultExecutor {
+    private static final Executor INSTANCE = create();
+
+    private DefaultExecutor() { }
+
+    /** @return The default executor */
+    static Executor get() {
+        return INSTANCE;
+    }
+
+    private static Executor create() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(r -> {
+                var thread = new Thread(r, "GitVersion Worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.api.errors.InvalidConfigurationException;
+import org.eclipse.jgit.errors.InvalidPatternException;
+import org.eclipse.jgit.fnmatch.FileNameMatcher;
+import org.eclipse.jgit.lib.AbbrevConfig;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevFlagSet;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Describes commits using the tags of a {@link TagIndex}, the same way GitVersion used to describe them with
+ * {@link org.eclipse.jgit.api.DescribeCommand DescribeCommand}.
+ * <p>
+ * Tags are matched against the tag prefix and filters once per tagged commit, without going through the ref database.
+ * Like {@code git describe}, up to 10 candidate tags are collected while walking the history in commit time order,
+ * and the one with the fewest commits since it is chosen. Unlike {@code DescribeCommand}, the walk stops as soon as
+ * every commit left to visit is reachable from all candidates, since none of them can change the result anymore.
+ * The commits since the chosen tag that changed a project can then be counted from the commits that were already
+ * walked, instead of walking them again.
+ *
+ * @see #describe(AnyObjectId, Function)
+ */
+final class DescribeWalk implements AutoCloseable {
+    /** The number of candidate tags to consider, which is the default of {@code git describe --candidates}. */
+    private static final int MAX_CANDIDATES = 10;
+
+    private final Repository repository;
+    private final ObjectReader reader;
+    private final TagIndex tags;
+    private final boolean excludeDashes;
+    private final List<Predicate<String>> matchers = new ArrayList<>();
+    private int abbrev = -1;
+
+    /**
+     * @param repository The repository to describe commits in
+     * @param tags       The tags to describe commits with, which must include every tag that may match
+     * @param tagPrefix  The prefix of the tags to match, or an empty string to match tags without a {@code -}
+     * @param filters    Additional patterns of tags to match
+     */
+    DescribeWalk(Repository repository, TagIndex tags, String tagPrefix, String[] filters) {
+        this.repository = repository;
+        this.reader = repository.newObjectReader();
+        this.tags = tags;
+
+        // matches DescribeCommand with setMatch(tagPrefix + "**", filters...) or setExclude("*-*")
+        this.excludeDashes = tagPrefix.isEmpty();
+        if (!tagPrefix.isEmpty())
+            this.matchers.add(isPattern(tagPrefix) ? compile(tagPrefix + "**") : tag -> tag.startsWith(tagPrefix));
+        for (var filter : filters)
+            this.matchers.add(compile(filter));
+    }
+
+    /** @return {@code true} if the given tag prefix is matched as a pattern instead of as a literal prefix */
+    static boolean isPattern(String s) {
+        return s.indexOf('*') >= 0 || s.indexOf('?') >= 0 || s.indexOf('[') >= 0 || s.indexOf('\\') >= 0;
+    }
+
+    private static Predicate<String> compile(String pattern) {
+        try {
+            var matcher = new FileNameMatcher(pattern, null);
+            return tag -> {
+                matcher.append(tag);
+                var matches = matcher.isMatch();
+                matcher.reset();
+                return matches;
+            };
+        } catch (InvalidPatternException e) {
+            throw new GitVersionExceptionInternal("Invalid tag filter: " + pattern, e);
+        }
+    }
+
+    /**
+     * Describes the given commit.
+     *
+     * @param target  The commit to describe
+     * @param changes Creates the filter of the commits that changed the project, which must not require commit bodies
+     *                and will only be given non-merge commits, or {@code null} to not count them
+     * @return The description, or {@code null} if no matching tag is reachable from the given commit
+     * @throws IOException                   If an I/O error occurs when reading the Git repository
+     * @throws InvalidConfigurationException If the repository's {@code core.abbrev} is invalid
+     */
+    @Nullable Result describe(AnyObjectId target, @Nullable Function<RevWalk, RevFilter> changes) throws IOException, InvalidConfigurationException {
+        try (var walk = new RevWalk(this.reader)) {
+            walk.setRetainBody(false);
+
+            var head = walk.parseCommit(target);
+            var queue = new Queue(walk);
+            queue.add(head);
+
+            var candidates = new ArrayList<Candidate>(MAX_CANDIDATES);
+            var visited = new ArrayList<RevCommit>();
+            for (RevCommit c; (c = queue.next()) != null; ) {
+                for (var parent : c.getParents()) {
+                    if (queue.isQueued(parent)) continue;
+
+                    walk.parseHeaders(parent);
+                    queue.add(parent);
+                }
+                for (var candidate : candidates) {
+                    if (c.has(candidate.flag)) queue.carry(c, candidate.flag);
+                }
+
+                if (candidates.size() < MAX_CANDIDATES && !c.hasAny(queue.allFlags)) {
+                    // a tag on a commit that is reachable from another candidate is always further away
+                    var tag = this.getTag(c);
+                    if (tag != null) {
+                        var candidate = new Candidate(tag, c, walk.newFlag(tag), visited.size());
+                        queue.addFlag(candidate.flag);
+                        c.add(candidate.flag);
+                        queue.carry(c, candidate.flag);
+                        candidates.add(candidate);
+                    }
+                }
+
+                for (var candidate : candidates) {
+                    if (!c.has(candidate.flag)) candidate.depth++;
+                }
+                visited.add(c);
+
+                if (!candidates.isEmpty() && c.hasAll(queue.allFlags) && queue.incomplete == 0) break;
+            }
+
+            if (candidates.isEmpty()) return null;
+
+            var best = candidates.get(0);
+            for (var candidate : candidates) {
+                if (candidate.depth < best.depth) best = candidate;
+            }
+
+            var count = changes != null ? count(walk, visited, best, changes.apply(walk)) : -1;
+            return new Result(best.tag, best.commit.copy(), best.depth, count, this.getHash(head));
+        }
+    }
+
+    /**
+     * Gets the hash of the given commit as it appears in its description.
+     *
+     * @param commit The commit
+     * @return The abbreviated commit ID prefixed with {@code g}
+     * @throws IOException                   If an I/O error occurs when reading the Git repository
+     * @throws InvalidConfigurationException If the repository's {@code core.abbrev} is invalid
+     */
+    String getHash(AnyObjectId commit) throws IOException, InvalidConfigurationException {
+        if (this.abbrev < 0) this.abbrev = AbbrevConfig.parseFromConfig(this.repository).get();
+
+        return "g" + this.reader.abbreviate(commit, this.abbrev).name();
+    }
+
+    /**
+     * Counts the walked commits since the given candidate that changed the project, minus one. As history
+     * simplification can skip entire branches of merges, commits with multiple parents cannot be counted here.
+     *
+     * @return The commit count, or {@code -2} if it must be counted using a walk of its own
+     */
+    private static int count(RevWalk walk, List<RevCommit> visited, Candidate best, RevFilter filter) throws IOException {
+        // every commit that is not reachable from the tag has been visited, as the walk only stops once nothing left is
+        for (var c : visited) {
+            if (c.getParentCount() > 1 && (c == best.commit || !c.has(best.flag))) return -2;
+        }
+
+        int count = -1;
+        for (var c : visited) {
+            if ((c == best.commit || !c.has(best.flag)) && filter.include(walk, c)) count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the best matching tag of the given commit, which is what it is described as if it has one. This is chosen
+     * the same way as {@code DescribeCommand}: annotated tags with a newer tagger date are preferred, otherwise the
+     * tags are in the order of the patterns they match, then by name.
+     *
+     * @param commit The commit
+     * @return The best matching tag, or {@code null} if the commit has no matching tags
+     */
+    @Nullable String getTag(AnyObjectId commit) {
+        var tags = this.tags.getTags(commit);
+        if (tags.isEmpty()) return null;
+
+        var matching = new ArrayList<String>(tags.size());
+        if (this.matchers.isEmpty()) {
+            matching.addAll(tags);
+        } else {
+            for (var matcher : this.matchers) {
+                for (var tag : tags) {
+                    if (matcher.test(tag)) matching.add(tag);
+                }
+            }
+        }
+        if (this.excludeDashes) matching.removeIf(tag -> tag.indexOf('-') >= 0);
+
+        if (matching.size() > 1) matching.sort(this::compareTagDates);
+        return !matching.isEmpty() ? matching.get(0) : null;
+    }
+
+    private int compareTagDates(String a, String b) {
+        try {
+            return this.getTagDate(b).compareTo(this.getTagDate(a));
+        } catch (IOException e) {
+            // lightweight tags have no date
+            return 0;
+        }
+    }
+
+    private Instant getTagDate(String name) throws IOException {
+        var ref = this.repository.exactRef(Constants.R_TAGS + name);
+        if (ref == null) throw new IOException("Missing tag: " + name);
+
+        var tag = RevTag.parse(this.reader.open(ref.getObjectId(), Constants.OBJ_TAG).getCachedBytes());
+        return tag.getTaggerIdent().getWhenAsInstant();
+    }
+
+    @Override
+    public void close() {
+        this.reader.close();
+    }
+
+    /**
+     * The description of a commit.
+     *
+     * @param tag    The nearest matching tag
+     * @param commit The commit of the tag
+     * @param depth  The number of commits since the tag, as in {@code git describe}
+     * @param count  The number of commits since the tag that changed the project minus one, as returned by
+     *               {@link GitUtils#countCommits(org.eclipse.jgit.api.Git, ObjectId, Iterable, Iterable)}, or
+     *               {@code -2} if it could not be counted from the same walk
+     * @param hash   The abbreviated commit ID prefixed with {@code g}, as in {@code git describe --long}
+     */
+    record Result(String tag, ObjectId commit, int depth, int count, String hash) { }
+
+    private static final class Candidate {
+        private final String tag;
+        private final RevCommit commit;
+        private final RevFlag flag;
+        private int depth;
+
+        private Candidate(String tag, RevCommit commit, RevFlag flag, int depth) {
+            this.tag = tag;
+            this.commit = commit;
+            this.flag = flag;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * Commits ordered by commit time, newest first, and then in the order they were added like {@code RevWalk}.
+     * <p>
+     * The queue keeps count of the commits in it that are missing any of the candidates' flags, so the walk can tell
+     * when it may stop without looking at every queued commit. This is why flags must be carried to the parents of a
+     * commit through {@link #carry(RevCommit, RevFlag)}, which updates the count as queued commits receive them.
+     */
+    private static final class Queue {
+        private final PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator.comparingInt((Entry e) -> -e.commit.getCommitTime()).thenComparingLong(Entry::order));
+        private final RevFlag queued;
+        private final RevFlag inQueue;
+        private final RevFlagSet allFlags = new RevFlagSet();
+        private final ArrayDeque<RevCommit> pending = new ArrayDeque<>();
+        private long order;
+        /** The number of commits in the queue that do not have all of {@link #allFlags}. */
+        private int incomplete;
+
+        private Queue(RevWalk walk) {
+            this.queued = walk.newFlag("QUEUED");
+            this.inQueue = walk.newFlag("IN_QUEUE");
+        }
+
+        /** @return {@code true} if the given commit has ever been added to the queue */
+        private boolean isQueued(RevCommit commit) {
+            return commit.has(this.queued);
+        }
+
+        private void add(RevCommit commit) {
+            commit.add(this.queued);
+            commit.add(this.inQueue);
+            if (!commit.hasAll(this.allFlags)) this.incomplete++;
+
+            this.queue.add(new Entry(commit, this.order++));
+        }
+
+        private @Nullable RevCommit next() {
+            var entry = this.queue.poll();
+            if (entry == null) return null;
+
+            var commit = entry.commit;
+            commit.remove(this.inQueue);
+            if (!commit.hasAll(this.allFlags)) this.incomplete--;
+
+            return commit;
+        }
+
+        /** Adds the flag of a new candidate, which none of the queued commits have yet. */
+        private void addFlag(RevFlag flag) {
+            this.allFlags.add(flag);
+            this.incomplete = this.queue.size();
+        }
+
+        /**
+         * Adds the given flag to every parsed ancestor of the given commit, like {@link RevCommit#carry(RevFlag)}.
+         *
+         * @param commit The commit whose ancestors to add the flag to
+         * @param flag   The flag, which must be one of {@link #allFlags}
+         */
+        private void carry(RevCommit commit, RevFlag flag) {
+            var pending = this.pending;
+            pending.push(commit);
+            for (RevCommit c; (c = pending.poll()) != null; ) {
+                for (int i = 0; i < c.getParentCount(); i++) {
+                    var parent = c.getParent(i);
+                    if (parent.has(flag)) continue;
+
+                    parent.add(flag);
+                    if (parent.has(this.inQueue) && parent.hasAll(this.allFlags)) this.incomplete--;
+                    pending.push(parent);
+                }
+            }
+        }
+
+        private record Entry(RevCommit commit, long order) { }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Predicate;
+
+/**
+ * The GitVersion cache directory, located at {@code gitversion} inside of the Git directory.
+ * <p>
+ * Everything stored here can be recalculated from the repository itself. Because of this, failing to read or write a
+ * cache file is never an error; it is simply treated as a cache miss.
+ */
+final class GitCache {
+    private static final String DIRECTORY = "gitversion";
+    private static final int MAGIC = 0x47564331; // GVC1
+
+    private final File dir;
+
+    private GitCache(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Gets the cache directory of the given repository. Linked worktrees share the cache of their main repository.
+     *
+     * @param repository The repository
+     * @return The cache
+     */
+    static GitCache of(Repository repository) {
+        return new GitCache(new File(repository.getCommonDirectory(), DIRECTORY));
+    }
+
+    /**
+     * @param name The name of the cache file
+     * @return The cache file, which may not exist yet
+     */
+    File file(String name) {
+        return new File(this.dir, name);
+    }
+
+    /**
+     * Reads a cache file.
+     *
+     * @param name    The name of the cache file
+     * @param version The version of the cache file format, which must match the version it was written with
+     * @param reader  The reader for the contents of the file
+     * @param <T>     The type of the read contents
+     * @return The read contents, or {@code null} if the file does not exist or could not be read
+     */
+    <T> @Nullable T read(String name, int version, Reader<T> reader) {
+        var file = this.file(name);
+        if (!file.isFile()) return null;
+
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != version) return null;
+
+            return reader.read(in);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a cache file, replacing it atomically so concurrent readers never see a partially written file.
+     *
+     * @param name    The name of the cache file
+     * @param version The version of the cache file format
+     * @param writer  The writer for the contents of the file
+     */
+    void write(String name, int version, Writer writer) {
+        File tmp = null;
+        try {
+            Files.createDirectories(this.dir.toPath());
+            tmp = File.createTempFile(name, ".tmp", this.dir);
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(version);
+                writer.write(out);
+            }
+
+            Files.move(tmp.toPath(), this.file(name).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            if (tmp != null) tmp.delete();
+        }
+    }
+
+    /**
+     * Appends to a cache file that was previously {@linkplain #write(String, int, Writer) written}. The appended data
+     * is buffered and written all at once, so concurrent appends do not interleave. Readers must still tolerate an
+     * incomplete record at the end of the file, in case a process is killed while appending.
+     *
+     * @param name   The name of the cache file
+     * @param writer The writer for the appended contents
+     */
+    void append(String name, Writer writer) {
+        var file = this.file(name);
+        if (!file.isFile()) return;
+
+        try {
+            var bytes = new ByteArrayOutputStream();
+            try (var out = new DataOutputStream(bytes)) {
+                writer.write(out);
+            }
+
+            try (var out = Files.newOutputStream(file.toPath(), StandardOpenOption.APPEND)) {
+                bytes.writeTo(out);
+            }
+        } catch (IOException | RuntimeException ignored) { }
+    }
+
+    /**
+     * Deletes the cache files whose names match the given filter, except for the one that is kept.
+     *
+     * @param keep   The name of the cache file to keep
+     * @param filter The filter for the names of the cache files to delete
+     */
+    void deleteOthers(String keep, Predicate<String> filter) {
+        var files = this.dir.listFiles((dir, name) -> !name.equals(keep) && filter.test(name));
+        if (files == null) return;
+
+        for (var file : files)
+            file.delete();
+    }
+
+    static ObjectId readId(DataInputStream in) throws IOException {
+        var raw = new byte[Constants.OBJECT_ID_LENGTH];
+        in.readFully(raw);
+        return ObjectId.fromRaw(raw);
+    }
+
+    static void writeId(DataOutputStream out, AnyObjectId id) throws IOException {
+        id.copyRawTo(out);
+    }
+
+    @FunctionalInterface
+    interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
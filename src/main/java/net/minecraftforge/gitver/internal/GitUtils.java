@@ -5,11 +5,16 @@
 package net.minecraftforge.gitver.internal;
 
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.ListBranchCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.NoHeadException;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.InvalidPatternException;
 import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.fnmatch.FileNameMatcher;
+import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
@@ -24,11 +29,9 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Utility class for common git operations.
@@ -98,11 +101,30 @@ public interface GitUtils {
      * @see #countCommits(Git, ObjectId, Iterable, Iterable)
      */
     static int countCommits(Git git, String tag, Iterable<String> includePaths, Iterable<String> excludePaths) throws GitAPIException, IOException {
-        var tags = GitUtils.getTagToCommitMap(git);
-        var commitHash = tags.get(tag);
-        if (commitHash == null) return -1;
+        return countCommits(git, TagIndex.load(git, null), tag, includePaths, excludePaths);
+    }
+
+    /**
+     * Counts commits, for the given Git repository, from the given tag to {@linkplain Constants#HEAD HEAD}, using an
+     * already loaded {@link TagIndex} to find the tagged commit. If the given tag cannot be found, this method will
+     * return {@code -1}.
+     *
+     * @param git          The git repository to count commits in
+     * @param tags         The tag index to look the tag up in
+     * @param tag          The tag name to start counting from
+     * @param includePaths The paths to include in the count
+     * @param excludePaths The paths to exclude from the count
+     * @return The commit count
+     * @throws GitAPIException If an error occurs when running the log command (see
+     *                         {@link org.eclipse.jgit.api.LogCommand#call() LogCommand.call()}
+     * @throws IOException     If an I/O error occurs when reading the Git repository
+     * @see #countCommits(Git, ObjectId, Iterable, Iterable)
+     */
+    static int countCommits(Git git, TagIndex tags, String tag, Iterable<String> includePaths, Iterable<String> excludePaths) throws GitAPIException, IOException {
+        var commit = resolveTag(git, tags, tag);
+        if (commit == null) return -1;
 
-        return countCommits(git, ObjectId.fromString(commitHash), includePaths, excludePaths);
+        return countCommits(git, commit, includePaths, excludePaths);
     }
 
     /**
@@ -113,6 +135,10 @@ public interface GitUtils {
      * that if the given commit is also the HEAD, the returned count will be {@code 0}. Additionally, if there are no
      * commits barring the paths given from the object ID, the count will be {@code -1}. Please handle this
      * accordingly.
+     * <p>
+     * If no paths are given and the repository has a commit-graph file, the commits are counted using its parents and
+     * generation numbers instead of parsing every commit (see {@link CommitGraphWalk}). Otherwise, they are counted
+     * with {@link #countCommitsFromTo(Git, ObjectId, ObjectId, Iterable, Iterable)}.
      *
      * @param git          The git repository to count commits in
      * @param from         The object ID (typically a commit or tag reference) to start counting from
@@ -126,7 +152,70 @@ public interface GitUtils {
      * @see <a href="https://git-scm.com/docs/git-log"><code>git-log</code></a>
      */
     static int countCommits(Git git, ObjectId from, Iterable<String> includePaths, Iterable<String> excludePaths) throws GitAPIException, IOException {
-        return Util.count(getCommitLogFromTo(git, from, getHead(git), includePaths, excludePaths));
+        var head = git.getRepository().resolve(Constants.HEAD);
+        if (head == null) throw new NoHeadException("No HEAD exists to count commits to");
+
+        if (!includePaths.iterator().hasNext() && !excludePaths.iterator().hasNext()) {
+            try (var walk = CommitGraphWalk.open(git.getRepository())) {
+                int count = walk != null ? walk.count(from, head) : -2;
+                if (count != -2) return count;
+            }
+        }
+
+        return countCommitsFromTo(git, from, head, includePaths, excludePaths);
+    }
+
+    /**
+     * Counts commits from the start commit to the end, without keeping any of them in memory. The result is the same
+     * as counting the commits returned by {@link #getCommitLogFromTo(Git, RevWalk, ObjectId, ObjectId, Iterable, Iterable)},
+     * minus one.
+     * <p>
+     * Unlike the log command, the walk does not retain commit messages and all objects are read using a single
+     * {@link ObjectReader}, so the memory used does not depend on the size of the commits. If paths are given and the
+     * repository's commit-graph has changed-path Bloom filters, they are used to skip diffing the trees of commits that
+     * certainly did not change any of the included paths (see {@link ChangedPathRevFilter}).
+     *
+     * @param git          The Git repository to count commits in
+     * @param from         The commit to start counting from (the oldest)
+     * @param to           The commit to count to (the youngest)
+     * @param includePaths The paths to include in the count
+     * @param excludePaths The paths to exclude from the count
+     * @return The commit count
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     */
+    static int countCommitsFromTo(Git git, ObjectId from, ObjectId to, Iterable<String> includePaths, Iterable<String> excludePaths) throws IOException {
+        var repository = git.getRepository();
+        var filtered = includePaths.iterator().hasNext() || excludePaths.iterator().hasNext();
+        try (var reader = repository.newObjectReader();
+             var walk = new RevWalk(reader)) {
+            var filter = ChangedPathRevFilter.create(walk, filtered ? CommitGraphWalk.load(repository) : null, includePaths, excludePaths);
+            return countCommits(walk, from, to, filter);
+        }
+    }
+
+    /**
+     * Counts the commits reachable from {@code to} that are not reachable from the parents of {@code from} and are
+     * accepted by the given filter, minus one. Commit bodies are never retained, and any body that was parsed for the
+     * filter is released as soon as its commit has been counted.
+     *
+     * @param walk   The walk to count the commits with, which should not have been used yet
+     * @param from   The commit to start counting from (the oldest)
+     * @param to     The commit to count to (the youngest)
+     * @param filter The filter for the commits to count
+     * @return The commit count
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     */
+    static int countCommits(RevWalk walk, AnyObjectId from, AnyObjectId to, RevFilter filter) throws IOException {
+        walk.setRetainBody(false);
+        walk.setRevFilter(filter);
+        walk.markStart(walk.parseCommit(to));
+        for (var parent : walk.parseCommit(from).getParents())
+            walk.markUninteresting(parent);
+
+        int count = -1;
+        for (RevCommit commit; (commit = walk.next()) != null; count++)
+            commit.disposeBody();
+        return count;
     }
 
     /**
@@ -172,49 +261,48 @@ public interface GitUtils {
      * Gets the commit log from the start commit to the end.
      *
      * @param git          The Git repository to get the commits from
+     * @param walk         The walk to get the commits with, which should not have been used yet
      * @param from         The commit to start from (the oldest)
      * @param to           The end commit (the youngest)
      * @param includePaths The paths to include in the count
      * @return The commit log (youngest to oldest)
-     * @throws GitAPIException If an error occurs when running the log command (see
-     *                         {@link org.eclipse.jgit.api.LogCommand#call() LogCommand.call()}
-     * @throws IOException     If an I/O error occurs when reading the Git repository
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     * @see #getCommitLogFromTo(Git, RevWalk, ObjectId, ObjectId, Iterable, Iterable)
      */
-    static Iterable<RevCommit> getCommitLogFromTo(Git git, ObjectId from, ObjectId to, Iterable<String> includePaths) throws GitAPIException, IOException {
-        return getCommitLogFromTo(git, from, to, includePaths, Collections::emptyIterator);
+    static Iterable<RevCommit> getCommitLogFromTo(Git git, RevWalk walk, ObjectId from, ObjectId to, Iterable<String> includePaths) throws IOException {
+        return getCommitLogFromTo(git, walk, from, to, includePaths, Collections::emptyIterator);
     }
 
     /**
-     * Gets the commit log from the start commit to the end.
+     * Gets the commit log from the start commit to the end. The commits are the same as the ones the log command
+     * would return with the given paths, but the walk does not retain commit messages. A commit's message can be read
+     * when it is needed with {@link RevWalk#parseBody(org.eclipse.jgit.revwalk.RevObject) RevWalk.parseBody(RevObject)}
+     * and released again with {@link RevCommit#disposeBody()}, so only the headers of the commits are kept in memory
+     * while the log is being held.
      *
      * @param git          The Git repository to get the commits from
+     * @param walk         The walk to get the commits with, which should not have been used yet
      * @param from         The commit to start from (the oldest)
      * @param to           The end commit (the youngest)
      * @param includePaths The paths to include in the log
      * @param excludePaths The paths to exclude from the log
-     * @return The commit log (youngest to oldest)
-     * @throws GitAPIException If an error occurs when running the log command (see
-     *                         {@link org.eclipse.jgit.api.LogCommand#call() LogCommand.call()}
-     * @throws IOException     If an I/O error occurs when reading the Git repository
+     * @return The commit log (youngest to oldest), which can only be iterated once
+     * @throws IOException If an I/O error occurs when reading the Git repository
      */
-    static Iterable<RevCommit> getCommitLogFromTo(Git git, ObjectId from, ObjectId to, Iterable<String> includePaths, Iterable<String> excludePaths) throws GitAPIException, IOException {
-        var start = getCommitFromId(git, from);
-        var end = getCommitFromId(git, to);
+    static Iterable<RevCommit> getCommitLogFromTo(Git git, RevWalk walk, ObjectId from, ObjectId to, Iterable<String> includePaths, Iterable<String> excludePaths) throws IOException {
+        var repository = git.getRepository();
+        var filtered = includePaths.iterator().hasNext() || excludePaths.iterator().hasNext();
 
-        var log = git.log().add(end);
+        walk.setRetainBody(false);
+        walk.setRevFilter(ChangedPathRevFilter.create(walk, filtered ? CommitGraphWalk.load(repository) : null, includePaths, excludePaths));
+        walk.markStart(walk.parseCommit(to));
 
         // If our starting commit contains at least one parent (it is not the 'root' commit), exclude all of those parents
-        for (var parent : start.getParents())
-            log.not(parent);
+        for (var parent : walk.parseCommit(from).getParents())
+            walk.markUninteresting(parent);
         // We do not exclude the starting commit itself, so the commit is present in the returned iterable
 
-        for (var path : includePaths)
-            log.addPath(path);
-
-        for (var path : excludePaths)
-            log.excludePath(path);
-
-        return log.call();
+        return walk;
     }
 
     /**
@@ -223,27 +311,34 @@ public interface GitUtils {
      * @param git The Git repository to get the tags from.
      * @return The commit hashes to tag map.
      */
-    static Map<String, String> getCommitToTagMap(Git git) throws GitAPIException, IOException {
+    static Map<String, String> getCommitToTagMap(Git git) throws IOException {
         return getCommitToTagMap(git, null);
     }
 
     /**
      * Builds a map of commit hashes to tag names.
      *
-     * @param git The Git repository to get the tags from
+     * @param git       The Git repository to get the tags from
+     * @param tagPrefix The prefix the tag names must start with, or {@code null} to use all tags
      * @return The commit hashes to tag map
+     * @see #getTags(Git, String)
      */
-    static Map<String, String> getCommitToTagMap(Git git, @Nullable String tagPrefix) throws GitAPIException, IOException {
-        var versionMap = new HashMap<String, String>();
-        for (Ref tag : git.tagList().call()) {
-            var tagId = git.getRepository().getRefDatabase().peel(tag).getPeeledObjectId();
-            if (tagId == null) tagId = tag.getObjectId();
-            if (!StringUtils.isEmptyOrNull(tagPrefix) && !tagId.name().startsWith(tagPrefix)) continue;
-
-            versionMap.put(tagId.name(), tag.getName().replace(Constants.R_TAGS, ""));
-        }
+    static Map<String, String> getCommitToTagMap(Git git, @Nullable String tagPrefix) throws IOException {
+        return getCommitToTagMap(git, tagPrefix, false);
+    }
 
-        return versionMap;
+    /**
+     * Builds a map of commit hashes to tag names, optionally using the persistent tag cache in the Git directory so
+     * that tags peeled in a previous run do not need to be peeled again.
+     *
+     * @param git       The Git repository to get the tags from
+     * @param tagPrefix The prefix the tag names must start with, or {@code null} to use all tags
+     * @param cache     Whether to use the persistent tag cache
+     * @return The commit hashes to tag map
+     * @see TagIndex#load(Git, String, boolean)
+     */
+    static Map<String, String> getCommitToTagMap(Git git, @Nullable String tagPrefix, boolean cache) throws IOException {
+        return TagIndex.load(git, tagPrefix, cache).toCommitToTagMap();
     }
 
     /**
@@ -252,271 +347,200 @@ public interface GitUtils {
      * @param git The Git repository to get the tags from
      * @return The tags to commit hash map
      */
-    static Map<String, String> getTagToCommitMap(Git git) throws GitAPIException, IOException {
+    static Map<String, String> getTagToCommitMap(Git git) throws IOException {
         return getTagToCommitMap(git, null);
     }
 
     /**
      * Builds a map of tag name to commit hash.
      *
-     * @param git The Git repository to get the tags from
+     * @param git       The Git repository to get the tags from
+     * @param tagPrefix The prefix the tag names must start with, or {@code null} to use all tags
      * @return The tags to commit hash map
+     * @see #getTags(Git, String)
      */
-    static Map<String, String> getTagToCommitMap(Git git, @Nullable String tagPrefix) throws GitAPIException, IOException {
-        Map<String, String> versionMap = new HashMap<>();
-        for (Ref tag : git.tagList().call()) {
-            ObjectId tagId = git.getRepository().getRefDatabase().peel(tag).getPeeledObjectId();
-            if (tagId == null) tagId = tag.getObjectId();
-            if (!StringUtils.isEmptyOrNull(tagPrefix) && !tagId.name().startsWith(tagPrefix)) continue;
-
-            versionMap.put(tag.getName().replace(Constants.R_TAGS, ""), tagId.name());
-        }
-
-        return versionMap;
-    }
-
-    static RevCommit getFirstCommitInRepository(Git git) throws GitAPIException {
-        var commits = git.log().call().iterator();
-
-        RevCommit commit = null;
-        while (commits.hasNext()) {
-            commit = commits.next();
-        }
-
-        return commit;
+    static Map<String, String> getTagToCommitMap(Git git, @Nullable String tagPrefix) throws IOException {
+        return getTagToCommitMap(git, tagPrefix, false);
     }
 
     /**
-     * Finds the youngest merge base commit on the current branch.
+     * Builds a map of tag name to commit hash, optionally using the persistent tag cache in the Git directory so that
+     * tags peeled in a previous run do not need to be peeled again.
      *
-     * @param git The Git repository to find the merge base in
-     * @return The merge base commit or null
+     * @param git       The Git repository to get the tags from
+     * @param tagPrefix The prefix the tag names must start with, or {@code null} to use all tags
+     * @param cache     Whether to use the persistent tag cache
+     * @return The tags to commit hash map
+     * @see TagIndex#load(Git, String, boolean)
      */
-    static @Nullable RevCommit getMergeBaseCommit(Git git) throws GitAPIException, IOException {
-        var headCommit = getHead(git);
-        var remoteBranches = getAvailableRemoteBranches(git);
-        return remoteBranches
-            .stream()
-            .filter(branch -> !branch.getObjectId().getName().equals(headCommit.toObjectId().getName()))
-            .map(branch -> getMergeBase(git, branch))
-            .filter(revCommit -> (revCommit != null) &&
-                (!revCommit.toObjectId().getName().equals(headCommit.toObjectId().getName())))
-            .min(Comparator.comparing(revCommit -> Integer.MAX_VALUE - revCommit.getCommitTime()))
-            .orElse(null);
+    static Map<String, String> getTagToCommitMap(Git git, @Nullable String tagPrefix, boolean cache) throws IOException {
+        return TagIndex.load(git, tagPrefix, cache).toTagToCommitMap();
     }
 
     /**
-     * Get all available remote branches in the git workspace.
+     * Resolves the commit that the given tag points to. The tag index is checked first, falling back to reading the
+     * tag ref directly for tags outside of the index (i.e. tags that do not start with its tag prefix).
      *
-     * @param git The Git repository to get the branches from
-     * @return A list of remote branches
+     * @param git  The Git repository to resolve the tag in
+     * @param tags The tag index to check first
+     * @param tag  The tag name, without {@code refs/tags/}
+     * @return The peeled object ID, or {@code null} if the tag does not exist
+     * @throws IOException If an I/O error occurs when reading the Git repository
      */
-    static List<Ref> getAvailableRemoteBranches(Git git) throws GitAPIException {
-        return git.branchList().setListMode(ListBranchCommand.ListMode.REMOTE).call();
+    static @Nullable ObjectId resolveTag(Git git, TagIndex tags, String tag) throws IOException {
+        var commit = tags.getCommit(tag);
+        if (commit != null) return commit;
+
+        var ref = git.getRepository().exactRef(Constants.R_TAGS + tag);
+        return ref != null ? peel(git, ref) : null;
     }
 
     /**
-     * Get the merge base commit between the current and the given branch.
+     * Gets the tags in the given Git repository whose names start with the given prefix.
+     * <p>
+     * Only the refs under <code>refs/tags/&lt;tagPrefix&gt;</code> are requested from the
+     * {@linkplain org.eclipse.jgit.lib.RefDatabase ref database}, so the cost of this scales with the amount of
+     * matching tags rather than with every tag in the repository.
      *
-     * @param git   The Git repository to get the merge base in
-     * @param other The other branch to find the merge base with
-     * @return A merge base commit or null
+     * @param git       The Git repository to get the tags from
+     * @param tagPrefix The prefix the tag names must start with, or {@code null} to get all tags
+     * @return The matching tag refs, sorted by name
+     * @throws IOException If an I/O error occurs when reading the Git repository
      */
-    static RevCommit getMergeBase(Git git, Ref other) {
-        try (RevWalk walk = new RevWalk(git.getRepository())) {
-            walk.setRevFilter(RevFilter.MERGE_BASE);
-            walk.markStart(getCommitFromRef(git, other));
-            walk.markStart(getHead(git));
-
-            RevCommit mergeBase = null;
-            RevCommit current;
-            while ((current = walk.next()) != null) {
-                mergeBase = current;
-            }
-            return mergeBase;
-        } catch (MissingObjectException ignored) {
-            return null;
-        } catch (IOException e) {
-            return Util.sneak(e);
-        }
+    static List<Ref> getTags(Git git, @Nullable String tagPrefix) throws IOException {
+        var prefix = StringUtils.isEmptyOrNull(tagPrefix) ? Constants.R_TAGS : Constants.R_TAGS + tagPrefix;
+        return git.getRepository().getRefDatabase().getRefsByPrefix(prefix);
     }
 
     /**
-     * Builds a commit hash to version map. The commits version is build based on forges common version scheme.
-     * <p>
-     * From the current identifiable-version (in the form of major.minor) a patch section is appended based on the
-     * amount of commits since the last tagged commit. A tagged commit get 0 patch section appended. Any commits that
-     * are before the first tagged commit will not get a patch section append but a '-pre-' section will be appended,
-     * with a commit count as well.
+     * Peels the given tag to the object it ultimately points to. Lightweight tags, and annotated tags that are
+     * already peeled in {@code packed-refs}, do not require reading the tag object.
      *
-     * @param commits              The commits to build the version map for
-     * @param commitHashToVersions A commit hash to identifiable-version name map
-     * @return The commit hash to calculated version map
+     * @param git The Git repository the tag is in
+     * @param tag The tag to peel
+     * @return The peeled object ID (typically a commit)
+     * @throws IOException If an I/O error occurs when reading the Git repository
      */
-    static Map<String, String> buildVersionMap(List<RevCommit> commits, Map<String, String> commitHashToVersions) {
-        //Determine the version that sets the first fixed version commit.
-        var prereleaseTargetVersion = getFirstReleasedVersion(commits, commitHashToVersions);
-        //Inverse all commits (Now from old to new).
-        var reversedCommits = Util.copyList(commits, Collections::reverse);
-
-        //Working variables to keep track of the current version and the offset.
-        var currentVersion = "";
-        int offset = 0;
-
-        //Map to store the results.
-        var versionMap = new HashMap<String, String>();
-        for (RevCommit commit : reversedCommits) {
-            //Grab the commit hash.
-            var commitHash = commit.toObjectId().name();
-            var version = commitHashToVersions.get(commitHash); //Check if we have a tagged commit for a specific identifiable-version.
-            if (version != null) {
-                //We have a tagged commit, update the current version and set the offset to 0.
-                offset = 0;
-                currentVersion = version;
-            } else {
-                //We don't have a tagged commit, increment the offset.
-                offset++;
-            }
+    static ObjectId peel(Git git, Ref tag) throws IOException {
+        if (!tag.isPeeled())
+            tag = git.getRepository().getRefDatabase().peel(tag);
 
-            //Determine the commits version.
-            var releasedVersion = currentVersion + "." + offset;
-            if (currentVersion.isEmpty()) {
-                //We do not have a tagged commit yet.
-                //So append the pre-release offset to the version
-                releasedVersion = prereleaseTargetVersion + "-pre-%s".formatted(offset);
-            }
-            versionMap.put(commitHash, releasedVersion);
-        }
+        var tagId = tag.getPeeledObjectId();
+        return tagId != null ? tagId : tag.getObjectId();
+    }
 
-        return versionMap;
+    /** @see #getFirstCommitInRepository(Git, boolean) */
+    static @Nullable RevCommit getFirstCommitInRepository(Git git) throws IOException {
+        return getFirstCommitInRepository(git, false);
     }
 
     /**
-     * Finds the oldest version in the list of commits.
+     * Gets the root commit of the current branch, found by following the first parents of {@code HEAD}.
+     * <p>
+     * In a repository with several root commits, this is the root of the main line. This used to be the last commit
+     * of the full log instead, which is usually the oldest root, but finding it requires walking the entire history.
      *
-     * @param commits              The commits to check. (youngest to oldest)
-     * @param commitHashToVersions The commit hash to version map
-     * @return The oldest identifiable-version in the list of commits
+     * @param git   The Git repository to get the root commit of
+     * @param cache Whether to remember the root commit in the {@linkplain GitCache GitVersion cache directory}
+     * @return The root commit, or {@code null} if the repository has no commits
+     * @throws IOException If an I/O error occurs when reading the Git repository
      */
-    static String getFirstReleasedVersion(List<RevCommit> commits, Map<String, String> commitHashToVersions) {
-        String currentVersion = "0.0";
-        //Simple loop over all commits (natural order is youngest to oldest)
-        for (RevCommit commit : commits) {
-            var commitHash = commit.toObjectId().name();
-            var version = commitHashToVersions.get(commitHash);
-            if (version != null) {
-                currentVersion = version;
-            }
-        }
+    static @Nullable RevCommit getFirstCommitInRepository(Git git, boolean cache) throws IOException {
+        var repository = git.getRepository();
+        var head = repository.resolve(Constants.HEAD);
+        if (head == null) return null;
 
-        //Return the last one found.
-        return currentVersion;
+        return getCommitFromId(git, RootCommitCache.find(repository, head, cache ? GitCache.of(repository) : null));
     }
 
     /**
-     * Builds a map that matches a commit hash to an identifiable-version (the primary version).
+     * Finds the youngest merge base commit on the current branch.
      *
-     * @param commits              The commits to check from youngest to oldest
-     * @param commitHashToVersions A commit hash to identifiable-version name map
-     * @return The commit hash to identifiable-version map
+     * @param git The Git repository to find the merge base in
+     * @return The merge base commit or null
+     * @see #getMergeBaseCommit(Git, Collection)
      */
-    static Map<String, String> getPrimaryVersionMap(List<RevCommit> commits, Map<String, String> commitHashToVersions) {
-        String lastVersion = null;
-        var currentVersionCommitHashes = new ArrayList<String>();
-        var primaryVersionMap = new HashMap<String, String>();
-
-        //Loop over all commits.
-        for (RevCommit commit : commits) {
-            var commitHash = commit.toObjectId().name();
-            currentVersionCommitHashes.add(commitHash); //Collect all commit hashes in the current identifiable version.
-            var version = commitHashToVersions.get(commitHash);
-            if (version != null) {
-                //We found a version boundary (generally a tagged commit is the first build for a given identifiable-version).
-                for (String combinedHash : currentVersionCommitHashes) {
-                    primaryVersionMap.put(combinedHash, version);
-                    lastVersion = version;
-                }
-
-                //Reset the collection list.
-                currentVersionCommitHashes.clear();
-            }
-        }
-
-        //We need to deal with repositories without properly tagged versions
-        //They are all 1.0-pre-x for now then.
-        if (commitHashToVersions.isEmpty())
-            lastVersion = "1.0";
-
-        if (lastVersion != null) {
-            //Everything that is left over are pre-releases.
-            for (String combinedHash : currentVersionCommitHashes) {
-                primaryVersionMap.put(combinedHash, lastVersion + "-pre");
-            }
-        }
-
-        //Return the collected data.
-        return primaryVersionMap;
+    static @Nullable RevCommit getMergeBaseCommit(Git git) throws GitAPIException, IOException {
+        return getMergeBaseCommit(git, getRemoteBranches(git, Collections.emptyList()));
     }
 
     /**
-     * Determine the length of pre commit message prefix for each identifiable-version. This is generally dependent on
-     * the amount of releases in each window, more releases means more characters, and this a longer prefix. The prefix
-     * length guarantees that all versions in that window will fit in the log, lining up the commit messages vertically
-     * under each other.
+     * Finds the youngest merge base between the current branch and any of the given branches, not counting
+     * {@code HEAD} itself.
+     * <p>
+     * Instead of finding the merge bases of each branch separately, {@code HEAD} and all branches are walked together
+     * in commit time order, like {@code git merge-base} (see {@link MergeBaseWalk}).
      *
-     * @param availableVersions        The available versions to check. Order does not matter
-     * @param availablePrimaryVersions The available primary versions to check. Order does not matter
-     * @return A map from primary identifiable-version to prefix length
+     * @param git      The Git repository to find the merge base in
+     * @param branches The branches to find the merge base with
+     * @return The merge base commit or null
+     * @throws IOException If an I/O error occurs when reading the Git repository
      */
-    static Map<String, Integer> determinePrefixLengthPerPrimaryVersion(Collection<String> availableVersions, Set<String> availablePrimaryVersions) {
-        var result = new HashMap<String, Integer>();
-
-        //Sort the versions reversely alphabetically by length (reverse alphabetical order).
-        //Needed so that versions which prefix another version are tested later then the versions they are an infix for.
-        var sortedVersions = Util.copyList(availablePrimaryVersions, Collections::sort);
-        var workingPrimaryVersions = Util.copyList(sortedVersions, Collections::reverse);
-
-        //Loop over each known version.
-        for (String version : availableVersions) {
-            //Check all primary versions for a prefix match.
-            for (String primaryVersion : workingPrimaryVersions) {
-                if (!version.startsWith(primaryVersion)) {
-                    continue;
-                }
-
-                //Check if we have a longer version, if so store.
-                var length = version.trim().length();
-                if (!result.containsKey(primaryVersion) || result.get(primaryVersion) < length)
-                    result.put(primaryVersion, length);
-
-                //Abort the inner loop and continue with the next.
-                break;
+    static @Nullable RevCommit getMergeBaseCommit(Git git, Collection<Ref> branches) throws IOException {
+        try (var walk = new RevWalk(git.getRepository())) {
+            walk.setRetainBody(false);
+
+            var head = walk.parseCommit(git.getRepository().resolve(Constants.HEAD));
+            var tips = new ArrayList<RevCommit>(branches.size());
+            for (var branch : branches) {
+                var id = branch.getObjectId();
+                if (id == null || id.equals(head)) continue;
+
+                try {
+                    tips.add(walk.parseCommit(id));
+                } catch (MissingObjectException | IncorrectObjectTypeException ignored) { }
             }
-        }
 
-        return result;
+            return MergeBaseWalk.find(walk, head, tips);
+        }
     }
 
     /**
-     * Processes the commit body of a commit stripping out unwanted information.
+     * Gets the remote branches matching any of the given patterns, such as {@code origin/main} or
+     * {@code origin/1.21.*}. Wildcards only match within a single path segment, so {@code origin/1.21.*} does not match
+     * {@code origin/1.21.x/feature}. Each pattern is looked up by the longest ref prefix without wildcards, so only the
+     * remote branches that could match are read from the ref database.
      *
-     * @param body The body to process
-     * @return The result of the processing
+     * @param git      The Git repository to get the branches from
+     * @param patterns The patterns of the remote branches, without {@code refs/remotes/}, or an empty collection for
+     *                 all remote branches
+     * @return The matching remote branches
+     * @throws IOException If an I/O error occurs when reading the Git repository
      */
-    static String processCommitBody(String body) {
-        var bodyLines = body.split("\n"); //Split on newlines.
-        var resultingLines = new ArrayList<String>();
-        for (String bodyLine : bodyLines) {
-            if (bodyLine.startsWith("Signed-off-by: ")) //Remove all the signed of messages.
+    static List<Ref> getRemoteBranches(Git git, Collection<String> patterns) throws IOException {
+        var refs = git.getRepository().getRefDatabase();
+        if (patterns.isEmpty()) return refs.getRefsByPrefix(Constants.R_REMOTES);
+
+        var ret = new LinkedHashMap<String, Ref>();
+        for (var pattern : patterns) {
+            if (pattern.startsWith(Constants.R_REMOTES))
+                pattern = pattern.substring(Constants.R_REMOTES.length());
+
+            int wildcard = 0;
+            while (wildcard < pattern.length() && "*?[\\".indexOf(pattern.charAt(wildcard)) < 0) wildcard++;
+            if (wildcard == pattern.length()) {
+                var ref = refs.exactRef(Constants.R_REMOTES + pattern);
+                if (ref != null) ret.putIfAbsent(ref.getName(), ref);
                 continue;
+            }
 
-            if (bodyLine.trim().isEmpty()) //Remove empty lines.
-                continue;
+            FileNameMatcher matcher;
+            try {
+                // like git's wildmatch with WM_PATHNAME, wildcards do not match across a slash
+                matcher = new FileNameMatcher(pattern, '/');
+            } catch (InvalidPatternException e) {
+                throw new GitVersionExceptionInternal("Invalid branch pattern: " + pattern, e);
+            }
 
-            resultingLines.add(bodyLine);
+            var prefix = Constants.R_REMOTES + pattern.substring(0, pattern.lastIndexOf('/', wildcard) + 1);
+            for (var ref : refs.getRefsByPrefix(prefix)) {
+                matcher.reset();
+                matcher.append(ref.getName().substring(Constants.R_REMOTES.length()));
+                if (matcher.isMatch()) ret.putIfAbsent(ref.getName(), ref);
+            }
         }
 
-        return String.join("\n", resultingLines).trim(); //Join the result again.
+        return new ArrayList<>(ret.values());
     }
 
     /**
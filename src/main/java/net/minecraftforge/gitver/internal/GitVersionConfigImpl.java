@@ -24,6 +24,7 @@ import java.util.Objects;
 @NotNullByDefault
 public record GitVersionConfigImpl(
     Map<String, Project> projects,
+    @Override List<String> getMergeBaseBranches,
     @Override List<? extends RuntimeException> errors
 ) implements GitVersionConfig {
     public static final GitVersionConfig EMPTY = new Empty();
@@ -64,7 +65,8 @@ public record GitVersionConfigImpl(
             projects.put(project.getPath, project);
         }
 
-        return new GitVersionConfigImpl(projects, toml.errors());
+        var branches = toml.getArrayOrEmpty("branches").toList().stream().map(String.class::cast).filter(s -> !s.isBlank()).toList();
+        return new GitVersionConfigImpl(projects, branches, toml.errors());
     }
 
     public record ProjectImpl(
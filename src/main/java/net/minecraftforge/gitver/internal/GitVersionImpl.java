@@ -4,6 +4,7 @@
  */
 package net.minecraftforge.gitver.internal;
 
+import net.minecraftforge.gitver.api.ChangelogTemplate;
 import net.minecraftforge.gitver.api.GitVersion;
 import net.minecraftforge.gitver.api.GitVersionConfig;
 import net.minecraftforge.gitver.api.GitVersionException;
@@ -18,20 +19,37 @@ import org.eclipse.jgit.util.StringUtils;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnmodifiableView;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serial;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public final class GitVersionImpl implements GitVersion {
     // Git
     private final boolean strict;
+    private final boolean cache;
+    private final Executor executor;
     private Git git;
-    private final Lazy<Info> info = Lazy.of(() -> this.calculateInfo(this::getSubprojectCommitCount));
+    private final LazyInfo info = new LazyInfo(this);
+    private final Lazy<Map<String, GitVersion.Info>> allInfo = Lazy.of(this::calculateAllInfo);
     private boolean closed = false;
+    /** The number of asynchronous operations still running, which keep the repository leased after closing. */
+    private int operations;
 
     // Filesystem
     public final File gitDir;
@@ -40,6 +58,7 @@ public final class GitVersionImpl implements GitVersion {
     public final String localPath;
 
     // Config
+    private final GitVersionConfig config;
     private final String tagPrefix;
     private final String[] filters;
     private final List<File> subprojects;
@@ -47,8 +66,10 @@ public final class GitVersionImpl implements GitVersion {
     // Unmodifiable views
     private final List<String> filtersView;
 
-    public GitVersionImpl(File gitDir, File root, File project, GitVersionConfig config, boolean strict) {
+    public GitVersionImpl(File gitDir, File root, File project, GitVersionConfig config, boolean strict, boolean cache, @Nullable Executor executor) {
         this.strict = strict;
+        this.cache = cache;
+        this.executor = executor != null ? executor : DefaultExecutor.get();
 
         this.gitDir = gitDir;
         this.root = root;
@@ -65,6 +86,7 @@ public final class GitVersionImpl implements GitVersion {
             throw new IllegalArgumentException("Invalid configuration", e);
         }
 
+        this.config = config;
         this.localPath = GitVersion.super.getProjectPath();
         var projectConfig = config.getProject(this.localPath);
         if (projectConfig == null)
@@ -82,93 +104,333 @@ public final class GitVersionImpl implements GitVersion {
 
     @Override
     public String generateChangelog(@Nullable String start, @Nullable String url, boolean plainText) throws GitVersionException {
-        try {
-            this.open();
+        return this.generateChangelog(start, url, plainText, this.config.getMergeBaseBranches());
+    }
 
-            RevCommit from;
-            if (StringUtils.isEmptyOrNull(start)) {
-                var mergeBase = GitUtils.getMergeBaseCommit(this.git);
-                from = mergeBase != null ? mergeBase : GitUtils.getFirstCommitInRepository(this.git);
-            } else {
-                var tags = GitUtils.getTagToCommitMap(this.git);
-                var commitHash = Util.orElse(tags.get(start), () -> start);
-                from = GitUtils.getCommitFromId(this.git, ObjectId.fromString(commitHash));
-            }
+    @Override
+    public String generateChangelog(@Nullable String start, @Nullable String url, boolean plainText, Collection<String> branches) throws GitVersionException {
+        return this.generateChangelog(start, url, template(plainText), branches);
+    }
 
-            if (from == null)
-                throw new GitVersionExceptionInternal("Opened repository has no commits");
+    @Override
+    public String generateChangelog(@Nullable String start, @Nullable String url, ChangelogTemplate template) throws GitVersionException {
+        return this.generateChangelog(start, url, template, this.config.getMergeBaseBranches());
+    }
 
-            var head = GitUtils.getHead(this.git);
-            return GitChangelog.generateChangelogFromTo(this.git, Util.orElse(url, () -> GitUtils.buildProjectUrl(this.git)), plainText, from, head, this.tagPrefix, this.getSubprojectPaths());
+    private String generateChangelog(@Nullable String start, @Nullable String url, ChangelogTemplate template, Collection<String> branches) throws GitVersionException {
+        var changelog = new StringBuilder();
+        try {
+            this.writeChangelog(start, url, template, branches, changelog);
         } catch (GitVersionException | GitAPIException | IOException e) {
             if (this.strict) throw new GitVersionExceptionInternal("Failed to generate the changelog", e);
 
             return "";
         }
+
+        return changelog.toString();
     }
 
+    @Override
+    public void generateChangelog(@Nullable String start, @Nullable String url, boolean plainText, Appendable out) throws GitVersionException {
+        this.generateChangelog(start, url, plainText, this.config.getMergeBaseBranches(), out);
+    }
 
-    /* INFO */
+    @Override
+    public void generateChangelog(@Nullable String start, @Nullable String url, boolean plainText, Collection<String> branches, Appendable out) throws GitVersionException {
+        this.generateChangelog(start, url, template(plainText), branches, out);
+    }
 
     @Override
-    public GitVersion.Info getInfo() {
-        return this.info.get();
+    public void generateChangelog(@Nullable String start, @Nullable String url, ChangelogTemplate template, Collection<String> branches, Appendable out) throws GitVersionException {
+        try {
+            this.writeChangelog(start, url, template, branches, out);
+        } catch (GitVersionException | GitAPIException | IOException e) {
+            if (this.strict) throw new GitVersionExceptionInternal("Failed to generate the changelog", e);
+        }
     }
 
-    /** @see #info */
-    private Info calculateInfo(CommitCountProvider commitCountProvider) {
+    @Override
+    public void generateChangelog(@Nullable String start, @Nullable String url, boolean plainText, OutputStream out) throws GitVersionException {
+        var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.generateChangelog(start, url, plainText, writer);
+
         try {
-            this.open();
+            writer.flush();
+        } catch (IOException e) {
+            if (this.strict) throw new GitVersionExceptionInternal("Failed to generate the changelog", e);
+        }
+    }
 
-            var describedTag = Util.make(this.git.describe(), it -> {
-                it.setTags(true);
-                it.setLong(true);
+    @Override
+    public CompletableFuture<String> generateChangelogAsync(@Nullable String start, @Nullable String url, boolean plainText) {
+        return this.generateChangelogAsync(start, url, template(plainText));
+    }
 
-                try {
-                    if (!this.tagPrefix.isEmpty())
-                        it.setMatch(this.tagPrefix + "**");
-                    else
-                        it.setExclude("*-*");
-
-                    for (String filter : this.filters)
-                        it.setMatch(filter);
-                } catch (Exception e) {
-                    Util.sneak(e);
-                }
-            }).call();
+    @Override
+    public CompletableFuture<String> generateChangelogAsync(@Nullable String start, @Nullable String url, ChangelogTemplate template) {
+        return this.supplyAsync(() -> this.generateChangelog(start, url, template), this.executor);
+    }
 
-            var desc = Util.rsplit(describedTag, "-", 2);
+    private static ChangelogTemplate template(boolean plainText) {
+        return plainText ? ChangelogTemplate.PLAIN_TEXT : ChangelogTemplate.MARKDOWN;
+    }
+
+    private void writeChangelog(@Nullable String start, @Nullable String url, ChangelogTemplate template, Collection<String> branches, Appendable out) throws GitAPIException, IOException {
+        var git = this.open();
 
-            Ref head = this.git.getRepository().exactRef(Constants.HEAD);
-            var longBranch = Util.make(() -> {
-                if (!head.isSymbolic()) return null;
+        RevCommit from;
+        if (StringUtils.isEmptyOrNull(start)) {
+            var mergeBase = GitUtils.getMergeBaseCommit(git, GitUtils.getRemoteBranches(git, branches));
+            from = mergeBase != null ? mergeBase : GitUtils.getFirstCommitInRepository(git, this.cache);
+        } else {
+            var commit = GitUtils.resolveTag(git, this.getTags(), start);
+            from = GitUtils.getCommitFromId(git, commit != null ? commit : ObjectId.fromString(start));
+        }
 
-                var target = head.getTarget();
-                return target != null ? target.getName() : null;
-            }); // matches Repository.getFullBranch() but returning null when on a detached HEAD
+        if (from == null)
+            throw new GitVersionExceptionInternal("Opened repository has no commits");
+
+        var head = GitUtils.getHead(git);
+        GitChangelog.generateChangelogFromTo(git, Util.orElse(url, () -> GitUtils.buildProjectUrl(git)), (ChangelogTemplateImpl) template, from, head, this.getTags(), this.getSubprojectPaths(), out);
+    }
+
+
+    /* INFO */
+
+    @Override
+    public GitVersion.Info getInfo() {
+        return this.info;
+    }
+
+    @Override
+    public CompletableFuture<GitVersion.Info> getInfoAsync() {
+        return this.supplyAsync(() -> {
+            this.info.resolve();
+            return this.info;
+        }, this.executor);
+    }
 
-            var ret = Info.builder();
-            var tag = Util.make(() -> {
-                var t = desc[0].substring(this.tagPrefix.length());
-                return t.substring((t.indexOf('v') == 0 || t.indexOf('-') == 0) && t.length() > 1 && Character.isDigit(t.charAt(1)) ? 1 : 0);
-            });
-            ret.tag = tag;
+    /**
+     * Starts calculating the info in the background. Any error is ignored here, since the failed calculation is
+     * simply attempted again by the next call to {@link #getInfo()}, which then reports it.
+     *
+     * @param executor The executor to calculate the info on, or {@code null} to use this GitVersion's executor
+     * @see GitVersion.Builder#prefetch(boolean)
+     */
+    public void prefetch(@Nullable Executor executor) {
+        this.supplyAsync(() -> {
+            try {
+                this.info.resolve();
+            } catch (RuntimeException ignored) { }
+            return null;
+        }, executor != null ? executor : this.executor);
+    }
 
-            ret.offset = commitCountProvider.getAsString(this.git, desc[0], desc[1], this.strict);
-            ret.hash = desc[2];
-            if (longBranch != null) ret.branch = Repository.shortenRefName(longBranch);
-            ret.commit = ObjectId.toString(head.getObjectId());
-            ret.abbreviatedId = head.getObjectId().abbreviate(8).name();
-            ret.url = GitUtils.buildProjectUrl(this.git);
+    @Override
+    public @UnmodifiableView Map<String, GitVersion.Info> getAllInfo() {
+        return this.allInfo.get();
+    }
 
-            return ret.build();
+    /**
+     * Calculates the info of every configured project. Each project still describes its own tag, but the commits
+     * since those tags are counted using one shared {@link ChangedProjects}, so every commit is only diffed once.
+     *
+     * @see #allInfo
+     */
+    private Map<String, GitVersion.Info> calculateAllInfo() {
+        var ret = new LinkedHashMap<String, GitVersion.Info>();
+        try {
+            var projects = this.getAllProjects();
+            try (var changes = this.openChangedProjects(projects)) {
+                for (var project : projects)
+                    ret.put(project.localPath, project.calculateInfo(changes));
+            }
         } catch (Exception e) {
             if (this.strict) throw new GitVersionExceptionInternal("Failed to calculate version info", e);
 
-            return Info.EMPTY;
+            ret.clear();
+            for (var project : this.config.getAllProjects())
+                ret.put(project.getPath(), Info.EMPTY);
+        }
+
+        return Collections.unmodifiableMap(ret);
+    }
+
+    /**
+     * Calculates the info of this project all at once. Like {@link LazyInfo}, each group of fields falls back to the
+     * fields of an empty info on its own if it fails to calculate outside of strict mode.
+     *
+     * @param changes The shared commit counter of all projects, or {@code null} to count the commits on their own
+     * @see #calculateAllInfo()
+     */
+    private Info calculateInfo(@Nullable ChangedProjects changes) {
+        var head = this.calculateHead();
+        var version = this.calculateVersion(head, changes);
+        return new Info(version.tag, version.offset, version.hash, head.branch, head.commit, head.abbreviatedId, this.calculateUrl().url);
+    }
+
+    /** @return The fields of the info that come from resolving {@code HEAD} */
+    private Head calculateHead() {
+        try {
+            var head = getHead(this.open());
+            var id = head.getObjectId();
+            return new Head(id, getBranch(head), ObjectId.toString(id), id.abbreviate(8).name());
+        } catch (Exception e) {
+            return this.failInfo(e, Head.EMPTY);
+        }
+    }
+
+    /**
+     * @param head    The resolved {@code HEAD}, which is described even if it has moved since
+     * @param changes The shared commit counter of all projects, or {@code null} to count the commits on their own
+     * @return The fields of the info that come from describing {@code HEAD}
+     */
+    private Version calculateVersion(Head head, @Nullable ChangedProjects changes) {
+        try {
+            if (head.id == null)
+                throw new GitVersionExceptionInternal("Opened repository has no commits");
+
+            return this.describe(this.open(), head.id, changes);
+        } catch (Exception e) {
+            return this.failInfo(e, Version.EMPTY);
         }
     }
 
+    /** @return The fields of the info that come from the remotes */
+    private Url calculateUrl() {
+        try {
+            return new Url(GitUtils.buildProjectUrl(this.open()));
+        } catch (Exception e) {
+            return this.failInfo(e, Url.EMPTY);
+        }
+    }
+
+    /** @return The given empty fields, unless in strict mode, where the exception is thrown instead */
+    private <T> T failInfo(Exception e, T empty) {
+        if (this.strict) throw new GitVersionExceptionInternal("Failed to calculate version info", e);
+
+        return empty;
+    }
+
+    /** @return The {@code HEAD} ref, which always points to a commit */
+    private static Ref getHead(Git git) throws IOException {
+        var head = git.getRepository().exactRef(Constants.HEAD);
+        if (head == null || head.getObjectId() == null)
+            throw new GitVersionExceptionInternal("Opened repository has no commits");
+
+        return head;
+    }
+
+    /**
+     * Describes the given commit using {@link DescribeWalk}, which also counts the commits since the tag that changed
+     * this project if it can do so from the commits it walked. Otherwise, they are counted by
+     * {@link #getSubprojectCommitCount(Git, String, ObjectId, ChangedProjects)}.
+     *
+     * @param head    The commit to describe
+     * @param changes The shared commit counter of all projects, or {@code null} to count the commits on their own
+     */
+    private Version describe(Git git, ObjectId head, @Nullable ChangedProjects changes) throws IOException, GitAPIException {
+        var repository = git.getRepository();
+        var paths = this.getCountedPaths();
+        DescribeWalk.Result desc;
+        try (var describe = new DescribeWalk(repository, this.getDescribeTags(), this.tagPrefix, this.filters)) {
+            desc = describe.describe(head, paths == null ? null : walk -> changes != null
+                ? changes.filter(paths, walk)
+                : ChangedPathRevFilter.create(walk, CommitGraphWalk.load(repository), paths.include(), paths.exclude()));
+        }
+        if (desc == null)
+            throw new GitVersionExceptionInternal("Couldn't find any tags to describe HEAD with");
+
+        return new Version(this.getVersionTag(desc.tag()), this.getOffset(git, head, desc, changes), desc.hash());
+    }
+
+    /**
+     * Gets the offset of a described commit, which is the number of commits since the tag that changed this project.
+     * If they were not counted with the description, they are counted by
+     * {@link #getSubprojectCommitCount(Git, String, ObjectId, ChangedProjects)}. The offset falls back to the described depth
+     * as in {@link CommitCountProvider#getAsString(Git, String, String, boolean)}, so if no commits changed this
+     * project, this throws in strict mode.
+     *
+     * @param head    The described commit, which the commits are counted to
+     * @param changes The shared commit counter of all projects, or {@code null} to count the commits on their own
+     */
+    private String getOffset(Git git, ObjectId head, DescribeWalk.Result desc, @Nullable ChangedProjects changes) {
+        CommitCountProvider commitCountProvider = (countGit, tag) -> {
+            var paths = this.getCountedPaths();
+            if (paths == null) return -1;
+            if (desc.count() == -2) return this.getSubprojectCommitCount(countGit, tag, head, changes);
+
+            return requireCommitCount(tag, paths, desc.count());
+        };
+
+        return commitCountProvider.getAsString(git, desc.tag(), Integer.toString(desc.depth()), this.strict);
+    }
+
+    @Override
+    public void forEachCommitInfo(@Nullable String start, Consumer<? super GitVersion.Info> action) {
+        try {
+            var git = this.open();
+
+            var repository = git.getRepository();
+            var head = repository.exactRef(Constants.HEAD);
+            if (head == null || head.getObjectId() == null)
+                throw new GitVersionExceptionInternal("Opened repository has no commits");
+
+            ObjectId from = null;
+            if (!StringUtils.isEmptyOrNull(start)) {
+                var commit = GitUtils.resolveTag(git, this.getTags(), start);
+                from = commit != null ? commit : ObjectId.fromString(start);
+            }
+
+            var branch = getBranch(head);
+            var url = GitUtils.buildProjectUrl(git);
+            var paths = this.getCountedPaths();
+            try (var describe = new DescribeWalk(repository, this.getDescribeTags(), this.tagPrefix, this.filters);
+                 var reader = repository.newObjectReader();
+                 var changes = paths != null ? this.openChangedProjects(this.getAllProjects()) : null) {
+                VersionWalk.walk(reader, describe, from, head.getObjectId(), changes != null ? walk -> changes.filter(paths, walk) : null, (commit, desc) -> {
+                    var ret = Info.builder();
+                    ret.tag = this.getVersionTag(desc.tag());
+                    ret.offset = this.getOffset(git, commit, desc, changes);
+                    ret.hash = desc.hash();
+                    ret.branch = branch;
+                    ret.commit = commit.name();
+                    ret.abbreviatedId = commit.abbreviate(8).name();
+                    ret.url = url;
+
+                    action.accept(ret.build());
+                });
+            }
+        } catch (GitVersionException | GitAPIException | IOException e) {
+            if (this.strict) throw new GitVersionExceptionInternal("Failed to calculate the info of every commit", e);
+        }
+    }
+
+    /**
+     * Gets the version of the given tag, without the tag prefix and a leading {@code v} or {@code -}.
+     *
+     * @param tag The described tag
+     * @return The version
+     */
+    private String getVersionTag(String tag) {
+        var t = tag.substring(this.tagPrefix.length());
+        return t.substring((t.indexOf('v') == 0 || t.indexOf('-') == 0) && t.length() > 1 && Character.isDigit(t.charAt(1)) ? 1 : 0);
+    }
+
+    /**
+     * Gets the branch that {@code HEAD} is on. This matches {@link Repository#getBranch()}, but returns {@code null}
+     * when on a detached {@code HEAD}.
+     *
+     * @param head The {@code HEAD} ref
+     * @return The branch, or {@code null} if {@code HEAD} is detached
+     */
+    private static @Nullable String getBranch(Ref head) {
+        if (!head.isSymbolic()) return null;
+
+        var target = head.getTarget();
+        return target != null ? Repository.shortenRefName(target.getName()) : null;
+    }
+
     /** @see GitVersion.Info */
     public record Info(
         @Override String getTag,
@@ -181,6 +443,29 @@ public final class GitVersionImpl implements GitVersion {
     ) implements GitVersion.Info {
         private static final Info EMPTY = new Info("0.0", "0", "00000000", "master", "0000000000000000000000", "00000000", null);
 
+        /**
+         * Compares the values of this info with those of the given info, which may also be the {@link LazyInfo}
+         * returned by {@link #getInfo()}.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof LazyInfo lazy) o = lazy.resolve();
+
+            return this == o || o instanceof Info other
+                && Objects.equals(this.getTag, other.getTag)
+                && Objects.equals(this.getOffset, other.getOffset)
+                && Objects.equals(this.getHash, other.getHash)
+                && Objects.equals(this.getBranch, other.getBranch)
+                && Objects.equals(this.getCommit, other.getCommit)
+                && Objects.equals(this.getAbbreviatedId, other.getAbbreviatedId)
+                && Objects.equals(this.getUrl, other.getUrl);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.getTag, this.getOffset, this.getHash, this.getBranch, this.getCommit, this.getAbbreviatedId, this.getUrl);
+        }
+
         private static Builder builder() {
             return new Builder();
         }
@@ -200,6 +485,120 @@ public final class GitVersionImpl implements GitVersion {
         }
     }
 
+    /**
+     * The info of {@code HEAD}, as returned by {@link #getInfo()}. Its fields are calculated in three independent
+     * groups, each only once any of its fields is first asked for:
+     * <ul>
+     *     <li>The {@linkplain #getBranch() branch}, {@linkplain #getCommit() commit} and
+     *     {@linkplain #getAbbreviatedId() abbreviated ID}, which only resolve {@code HEAD}.</li>
+     *     <li>The {@linkplain #getTag() tag}, {@linkplain #getOffset() offset} and {@linkplain #getHash() hash}, which
+     *     describe {@code HEAD} and count the commits since its tag.</li>
+     *     <li>The {@linkplain #getUrl() URL}, which is read from the remotes.</li>
+     * </ul>
+     * This way, asking for the commit never walks the history. Each group is calculated at most once, even if several
+     * threads ask for it at the same time. If a group fails to calculate outside of strict mode, its fields are the
+     * same as in an empty info. Once serialized, this becomes a plain {@link Info}.
+     */
+    public static final class LazyInfo implements GitVersion.Info {
+        private final transient GitVersionImpl gitVersion;
+        private final transient Lazy<Head> head;
+        private final transient Lazy<Version> version;
+        private final transient Lazy<Url> url;
+
+        private LazyInfo(GitVersionImpl gitVersion) {
+            this.gitVersion = gitVersion;
+            this.head = Lazy.of(gitVersion::calculateHead);
+            this.version = Lazy.of(() -> gitVersion.calculateVersion(this.head.get(), null));
+            this.url = Lazy.of(gitVersion::calculateUrl);
+        }
+
+        /**
+         * Calculates every field that has not been calculated yet.
+         *
+         * @return The info with all of its fields
+         */
+        Info resolve() {
+            var head = this.head.get();
+            var version = this.version.get();
+            return new Info(version.tag, version.offset, version.hash, head.branch, head.commit, head.abbreviatedId, this.url.get().url);
+        }
+
+        @Override
+        public String getTag() {
+            return this.version.get().tag;
+        }
+
+        @Override
+        public String getOffset() {
+            return this.version.get().offset;
+        }
+
+        @Override
+        public String getHash() {
+            return this.version.get().hash;
+        }
+
+        @Override
+        public String getBranch() {
+            return this.head.get().branch;
+        }
+
+        @Override
+        public String getCommit() {
+            return this.head.get().commit;
+        }
+
+        @Override
+        public String getAbbreviatedId() {
+            return this.head.get().abbreviatedId;
+        }
+
+        @Override
+        public @Nullable String getUrl() {
+            return this.url.get().url;
+        }
+
+        /**
+         * Compares the values of this info with those of the given info, which may also be a plain {@link Info}, such
+         * as one returned by {@link #getAllInfo()}. This calculates all fields of this info.
+         */
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof GitVersion.Info other && this.resolve().equals(other);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.resolve().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return this.resolve().toString();
+        }
+
+        @Serial
+        private Object writeReplace() {
+            return this.resolve();
+        }
+
+    }
+
+    /** The fields of the info that come from resolving {@code HEAD}. */
+    private record Head(@Nullable ObjectId id, String branch, String commit, String abbreviatedId) {
+        private static final Head EMPTY = new Head(null, Info.EMPTY.getBranch(), Info.EMPTY.getCommit(), Info.EMPTY.getAbbreviatedId());
+    }
+
+    /** The fields of the info that come from describing a commit. */
+    private record Version(String tag, String offset, String hash) {
+        private static final Version EMPTY = new Version(Info.EMPTY.getTag(), Info.EMPTY.getOffset(), Info.EMPTY.getHash());
+    }
+
+    /** The field of the info that comes from the remotes. */
+    private record Url(@Nullable String url) {
+        private static final Url EMPTY = new Url(null);
+    }
+
 
     /* FILTERING */
 
@@ -257,32 +656,180 @@ public final class GitVersionImpl implements GitVersion {
     }
 
 
-    /** The default implementation of {@link CommitCountProvider}, ignoring subprojects */
-    private int getSubprojectCommitCount(Git git, String tag) {
+    /**
+     * @return The paths to count commits in, or {@code null} if this is the root project without any subprojects, in
+     * which case the offset from describe is used as-is
+     */
+    private ChangedProjects.@Nullable Paths getCountedPaths() {
         var excludePaths = this.getSubprojectPaths();
-        if (this.localPath.isEmpty() && excludePaths.isEmpty()) return -1;
+        if (this.localPath.isEmpty() && excludePaths.isEmpty()) return null;
 
         var includePaths = !this.localPath.isEmpty() ? Collections.singleton(this.localPath) : Collections.<String>emptySet();
-        try {
-            int count = GitUtils.countCommits(git, tag, includePaths, excludePaths);
-            if (count >= 0) return count;
+        return new ChangedProjects.Paths(includePaths, excludePaths);
+    }
 
-            throw new GitVersionExceptionInternal("Couldn't find any commits with the following parameters: Tag %s, Include Paths [%s], Exclude Paths [%s]".formatted(tag, String.join(", ", includePaths), String.join(", ", excludePaths)));
-        } catch (GitAPIException | IOException e) {
+    /**
+     * The default implementation of {@link CommitCountProvider}, ignoring subprojects. If the cache is enabled, the
+     * count of the previous run is extended if possible (see {@link OffsetCache}).
+     * <p>
+     * Without the shared counter, this only diffs the paths of this project. The persistent index of
+     * {@link ChangedProjects} is only used when counting for every configured project at once, since building it diffs
+     * the paths of all of them.
+     *
+     * @param head    The described commit, which the commits are counted to instead of {@code HEAD} in case it has
+     *                moved since it was described
+     * @param changes The shared commit counter of all projects, or {@code null} to count the commits on their own
+     */
+    private int getSubprojectCommitCount(Git git, String tag, ObjectId head, @Nullable ChangedProjects changes) {
+        var paths = this.getCountedPaths();
+        if (paths == null) return -1;
+
+        try {
+            int count;
+            var repository = git.getRepository();
+            var commit = GitUtils.resolveTag(git, this.getTags(), tag);
+            if (commit == null) {
+                count = -1;
+            } else {
+                OffsetCache.Counter counter = changes != null
+                    ? () -> changes.count(paths, commit, head)
+                    : () -> GitUtils.countCommitsFromTo(git, commit, head, paths.include(), paths.exclude());
+                count = this.cache ? OffsetCache.count(repository, GitCache.of(repository), paths, tag, commit, head, counter) : counter.count();
+            }
+            return requireCommitCount(tag, paths, count);
+        } catch (IOException e) {
             throw new GitVersionExceptionInternal("Failed to count commits", e);
         }
     }
 
+    /**
+     * @return The given commit count
+     * @throws GitVersionException If no commits since the tag changed the given paths, so the count is {@code -1}
+     */
+    private static int requireCommitCount(String tag, ChangedProjects.Paths paths, int count) {
+        if (count >= 0) return count;
+
+        throw new GitVersionExceptionInternal("Couldn't find any commits with the following parameters: Tag %s, Include Paths [%s], Exclude Paths [%s]".formatted(tag, String.join(", ", paths.include()), String.join(", ", paths.exclude())));
+    }
+
+
+    /** @return A GitVersion for every configured project, sharing this instance's repository */
+    private List<GitVersionImpl> getAllProjects() {
+        var git = this.open();
+
+        var projects = this.config.getAllProjects();
+        var ret = new ArrayList<GitVersionImpl>(projects.size());
+        for (var project : projects) {
+            if (project.getPath().equals(this.localPath)) {
+                ret.add(this);
+                continue;
+            }
+
+            var child = new GitVersionImpl(this.gitDir, this.root, new File(this.root, project.getPath()).getAbsoluteFile(), this.config, this.strict, this.cache, this.executor);
+            child.git = git; // shares our repository, so it is never closed
+            ret.add(child);
+        }
+
+        return ret;
+    }
+
+    /** Opens a commit counter for the paths of the given projects, using the persistent index if enabled. */
+    private ChangedProjects openChangedProjects(List<GitVersionImpl> projects) {
+        var paths = new ArrayList<ChangedProjects.Paths>(projects.size());
+        for (var project : projects) {
+            var countedPaths = project.getCountedPaths();
+            if (countedPaths != null) paths.add(countedPaths);
+        }
+
+        var repository = this.open().getRepository();
+        return new ChangedProjects(repository, paths, this.cache ? GitCache.of(repository) : null);
+    }
+
+
+    /* TAGS */
+
+    /**
+     * Gets the tags to describe HEAD with. If there are filters, tags that only match them must be included as well.
+     * If the tag prefix is a pattern, the tags matching it cannot be looked up by name, so all tags are used.
+     *
+     * @return The tag index
+     */
+    private TagIndex getDescribeTags() {
+        return this.tagPrefix.isEmpty() || (this.filters.length == 0 && !DescribeWalk.isPattern(this.tagPrefix)) ? this.getTags() : this.getTags(null);
+    }
+
+    /** @return The tags matching the tag prefix of this project */
+    private TagIndex getTags() {
+        return this.getTags(this.tagPrefix);
+    }
+
+    /**
+     * Gets the tags of the repository, which are loaded once and shared by every GitVersion leasing it (see
+     * {@link RepositoryPool#getTags(Git, String, boolean)}).
+     *
+     * @param tagPrefix The prefix the tag names must start with, or {@code null} for all tags
+     * @return The tag index
+     */
+    private TagIndex getTags(@Nullable String tagPrefix) {
+        var git = this.open();
+
+        try {
+            return RepositoryPool.getTags(git, tagPrefix, this.cache);
+        } catch (IOException e) {
+            throw new GitVersionExceptionInternal("Failed to read tags", e);
+        }
+    }
+
 
     /* REPOSITORY */
 
-    /** Opens the Git repository. */
-    private void open() {
-        if (this.git != null) return;
-        if (this.closed) throw new GitVersionExceptionInternal("GitVersion is closed!");
+    /**
+     * Runs an asynchronous operation. Until it has finished, the repository stays leased even if this GitVersion is
+     * closed in the meantime, so the operation is never left with a closed repository.
+     *
+     * @param supplier The operation
+     * @param executor The executor to run the operation on
+     * @return The result of the operation
+     */
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        boolean started;
+        synchronized (this) {
+            started = !this.closed;
+            if (started) this.operations++;
+        }
+        if (!started) return CompletableFuture.supplyAsync(supplier, executor);
 
         try {
-            this.git = Git.open(this.gitDir);
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return supplier.get();
+                } finally {
+                    this.finish();
+                }
+            }, executor);
+        } catch (RuntimeException e) {
+            this.finish();
+            throw e;
+        }
+    }
+
+    /** Finishes an asynchronous operation, releasing the repository if this was closed while it was running. */
+    private synchronized void finish() {
+        if (--this.operations == 0 && this.closed) this.release();
+    }
+
+    /**
+     * Opens the Git repository, sharing it with every other GitVersion of the same repository. Once closed, it can
+     * only be opened by asynchronous operations that were started before.
+     *
+     * @return The repository
+     */
+    private synchronized Git open() {
+        if (this.closed && this.operations == 0) throw new GitVersionExceptionInternal("GitVersion is closed!");
+        if (this.git != null) return this.git;
+
+        try {
+            return this.git = RepositoryPool.lease(this.gitDir);
         } catch (IOException e) {
             this.close();
             throw new GitVersionExceptionInternal("Failed to open Git repository", e);
@@ -290,11 +837,15 @@ public final class GitVersionImpl implements GitVersion {
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
         this.closed = true;
+        if (this.operations == 0) this.release();
+    }
+
+    private void release() {
         if (this.git == null) return;
 
-        this.git.close();
+        RepositoryPool.release(this.git);
         this.git = null;
     }
 }
@@ -8,9 +8,16 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.function.Supplier;
 
+/**
+ * A thread-safe lazily computed value.
+ * <p>
+ * Once the value has been computed, getting it is a single volatile read. Until then, only one thread computes it
+ * while any other threads asking for it wait for that result instead of computing it again. If the computation fails
+ * or results in {@code null}, the next caller tries again.
+ */
 final class Lazy<T> implements Supplier<T> {
     private final Supplier<T> supplier;
-    private @Nullable T value;
+    private volatile @Nullable T value;
 
     static <T> Lazy<T> of(Supplier<T> supplier) {
         return new Lazy<>(supplier);
@@ -22,6 +29,12 @@ final class Lazy<T> implements Supplier<T> {
 
     @Override
     public T get() {
-        return this.value != null ? this.value : (this.value = this.supplier.get());
+        var value = this.value;
+        if (value != null) return value;
+
+        synchronized (this) {
+            value = this.value;
+            return value != null ? value : (this.value = this.supplier.get());
+        }
     }
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevFlagSet;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the youngest merge base between {@code HEAD} and any of a set of branches, not counting {@code HEAD} itself.
+ * <p>
+ * {@code HEAD} and all branches are walked together in commit time order, like {@code git merge-base}. Every commit
+ * reachable from both {@code HEAD} and a branch is a common ancestor, and the commits below it are marked as stale.
+ * The walk stops once every commit left to visit is stale, as no other merge base can be found past that point.
+ * <p>
+ * Branches that contain {@code HEAD} are left out, since their only merge base is {@code HEAD}. They are found in the
+ * same walk: if it reaches {@code HEAD} from a branch, the branches that contain it are found from the commits walked
+ * so far, and the walk starts over without them.
+ *
+ * @see GitUtils#getMergeBaseCommit(org.eclipse.jgit.api.Git, java.util.Collection)
+ */
+final class MergeBaseWalk {
+    private MergeBaseWalk() { }
+
+    /**
+     * Finds the youngest merge base between {@code HEAD} and any of the given branches.
+     *
+     * @param walk The walk to parse the commits with
+     * @param head The {@code HEAD} commit
+     * @param tips The tips of the branches, which must not include {@code HEAD}
+     * @return The merge base commit or null
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     */
+    static @Nullable RevCommit find(RevWalk walk, RevCommit head, List<RevCommit> tips) throws IOException {
+        tips = new ArrayList<>(tips);
+        var flags = new Flags(walk);
+        while (!tips.isEmpty()) {
+            var contained = new ArrayList<RevCommit>();
+            var mergeBase = walk(walk, flags, head, tips, contained);
+            if (contained.isEmpty()) return mergeBase;
+
+            tips.removeAll(contained);
+        }
+
+        return null;
+    }
+
+    /**
+     * Walks {@code HEAD} and the branches once. If the walk reaches {@code HEAD} from a branch, it stops and the tips
+     * of the branches that contain {@code HEAD} are given instead.
+     *
+     * @param contained Receives the tips that contain {@code HEAD}
+     * @return The merge base commit or null
+     */
+    private static @Nullable RevCommit walk(RevWalk walk, Flags flags, RevCommit head, List<RevCommit> tips, List<RevCommit> contained) throws IOException {
+        var painted = List.of(flags.onHead, flags.onBranch, flags.stale);
+
+        var queue = new Queue(flags);
+        head.add(flags.onHead);
+        queue.add(head);
+        for (var tip : tips) {
+            tip.add(flags.onBranch);
+            queue.add(tip);
+        }
+
+        var results = new ArrayList<RevCommit>();
+        var visited = new ArrayList<RevCommit>();
+        for (RevCommit c; (c = queue.next()) != null; ) {
+            visited.add(c);
+            if (c == head && c.has(flags.onBranch)) {
+                findContaining(flags.containsHead, head, tips, visited, contained);
+                flags.clear(head, tips, visited);
+                return null;
+            }
+
+            // the ancestors of a common ancestor are common ancestors too, but never the youngest one
+            boolean common = c.has(flags.onHead) && c.has(flags.onBranch);
+            if (common && !c.has(flags.result)) {
+                c.add(flags.result);
+                results.add(c);
+            }
+
+            for (var parent : c.getParents()) {
+                walk.parseHeaders(parent);
+
+                // commits are queued again if they gain a flag, which only happens if their commit time is off
+                boolean changed = false;
+                for (var flag : painted) {
+                    if ((c.has(flag) || (common && flag == flags.stale)) && !parent.has(flag)) {
+                        queue.paint(parent, flag);
+                        changed = true;
+                    }
+                }
+                if (changed) queue.add(parent);
+            }
+        }
+
+        RevCommit mergeBase = null;
+        for (var c : results) {
+            if (!c.has(flags.stale) && (mergeBase == null || c.getCommitTime() > mergeBase.getCommitTime()))
+                mergeBase = c;
+        }
+
+        return mergeBase;
+    }
+
+    /**
+     * Finds the tips that contain {@code HEAD}. Every commit between them and {@code HEAD} has been walked, so this
+     * only needs to look at the parents of the walked commits.
+     */
+    private static void findContaining(RevFlag containsHead, RevCommit head, List<RevCommit> tips, List<RevCommit> visited, List<RevCommit> contained) {
+        head.add(containsHead);
+        // parents are usually walked after their children, but commit times may be off
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            for (int i = visited.size() - 1; i >= 0; i--) {
+                var c = visited.get(i);
+                if (c.has(containsHead)) continue;
+
+                for (var parent : c.getParents()) {
+                    if (parent.has(containsHead)) {
+                        c.add(containsHead);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        for (var tip : tips) {
+            if (tip.has(containsHead)) contained.add(tip);
+        }
+    }
+
+    private static final class Flags {
+        private final RevFlag onHead;
+        private final RevFlag onBranch;
+        private final RevFlag stale;
+        private final RevFlag result;
+        private final RevFlag inQueue;
+        private final RevFlag containsHead;
+        private final RevFlagSet all;
+
+        private Flags(RevWalk walk) {
+            this.onHead = walk.newFlag("HEAD");
+            this.onBranch = walk.newFlag("BRANCH");
+            this.stale = walk.newFlag("STALE");
+            this.result = walk.newFlag("RESULT");
+            this.inQueue = walk.newFlag("IN_QUEUE");
+            this.containsHead = walk.newFlag("CONTAINS_HEAD");
+            this.all = new RevFlagSet(List.of(this.onHead, this.onBranch, this.stale, this.result, this.inQueue, this.containsHead));
+        }
+
+        /** Removes these flags from every commit the walk may have added them to, so it can start over. */
+        private void clear(RevCommit head, List<RevCommit> tips, List<RevCommit> visited) {
+            head.remove(this.all);
+            for (var tip : tips)
+                tip.remove(this.all);
+            for (var c : visited) {
+                c.remove(this.all);
+                for (var parent : c.getParents())
+                    parent.remove(this.all);
+            }
+        }
+    }
+
+    /**
+     * Commits ordered by commit time, newest first. A commit is only in the queue once, and the queue keeps count of
+     * the commits in it that are not stale, so the walk can tell when it may stop without looking at every one of
+     * them. This is why flags must be added to commits through {@link #paint(RevCommit, RevFlag)}.
+     */
+    private static final class Queue {
+        private final PriorityQueue<RevCommit> queue = new PriorityQueue<>(Comparator.comparingInt(RevCommit::getCommitTime).reversed());
+        private final Flags flags;
+        /** The number of commits in the queue that are not stale. */
+        private int active;
+
+        private Queue(Flags flags) {
+            this.flags = flags;
+        }
+
+        private void add(RevCommit commit) {
+            if (commit.has(this.flags.inQueue)) return;
+
+            commit.add(this.flags.inQueue);
+            if (!commit.has(this.flags.stale)) this.active++;
+            this.queue.add(commit);
+        }
+
+        /** @return The next commit, or {@code null} once every commit left is stale */
+        private @Nullable RevCommit next() {
+            if (this.active == 0) return null;
+
+            var commit = this.queue.remove();
+            commit.remove(this.flags.inQueue);
+            if (!commit.has(this.flags.stale)) this.active--;
+            return commit;
+        }
+
+        private void paint(RevCommit commit, RevFlag flag) {
+            if (flag == this.flags.stale && commit.has(this.flags.inQueue) && !commit.has(flag)) this.active--;
+            commit.add(flag);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A persistent cache of the last commit count of each project, stored in the {@linkplain GitCache GitVersion cache
+ * directory}.
+ * <p>
+ * Builds are usually rerun after {@code HEAD} has only moved forward by a few commits. If the described tag is the
+ * same as in the previous run and the previous {@code HEAD} is reached from the current one through a chain of
+ * non-merge commits, only the commits in that chain are checked and added to the stored count. Anything else, such
+ * as a new tag, a rebase, or a merge, falls back to counting all commits since the tag again.
+ */
+final class OffsetCache {
+    private static final int VERSION = 1;
+
+    private OffsetCache() { }
+
+    /**
+     * Counts the commits of a project, extending the count stored by the previous run if possible, and stores the
+     * result for the next run.
+     *
+     * @param repository The repository to count commits in
+     * @param cache      The cache to use
+     * @param paths      The paths of the project
+     * @param tag        The described tag
+     * @param from       The commit of the tag
+     * @param head       The current {@code HEAD} commit
+     * @param counter    Counts all commits from the tag to {@code HEAD} if the stored count cannot be used
+     * @return The commit count, as returned by
+     * {@link GitUtils#countCommits(org.eclipse.jgit.api.Git, ObjectId, Iterable, Iterable)}
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     */
+    static int count(Repository repository, GitCache cache, ChangedProjects.Paths paths, String tag, ObjectId from, ObjectId head, Counter counter) throws IOException {
+        var include = List.copyOf(paths.include());
+        var exclude = List.copyOf(paths.exclude());
+        var name = "offset-%08x.idx".formatted(31 * include.hashCode() + exclude.hashCode());
+
+        var cached = cache.read(name, VERSION, in -> Offset.read(in, include, exclude));
+        if (cached != null && (!cached.tag.equals(tag) || !cached.from.equals(from)))
+            cached = null;
+
+        if (cached != null && cached.head.equals(head))
+            return cached.count;
+
+        int count = -2;
+        if (cached != null) count = extend(repository, paths, cached, head);
+        if (count == -2) count = counter.count();
+
+        var offset = new Offset(tag, from, head, count);
+        cache.write(name, VERSION, out -> offset.write(out, include, exclude));
+        return count;
+    }
+
+    /**
+     * Adds the commits made on top of the cached {@code HEAD} to the cached count.
+     *
+     * @return The new count, or {@code -2} if the cached {@code HEAD} is not reached through non-merge commits
+     */
+    private static int extend(Repository repository, ChangedProjects.Paths paths, Offset cached, ObjectId head) throws IOException {
+        try (var walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+
+            var chain = new ArrayList<RevCommit>();
+            for (var commit = walk.parseCommit(head); !commit.equals(cached.head); ) {
+                // the tag is an ancestor of the cached HEAD, so reaching it means the cached HEAD was not on the way
+                if (commit.getParentCount() != 1 || commit.equals(cached.from)) return -2;
+
+                chain.add(commit);
+                commit = walk.parseCommit(commit.getParent(0));
+            }
+
+            var filter = ChangedPathRevFilter.create(walk, CommitGraphWalk.load(repository), paths.include(), paths.exclude());
+            int count = cached.count;
+            for (var commit : chain) {
+                if (filter.include(walk, commit)) count++;
+            }
+
+            return count;
+        }
+    }
+
+    /** Counts commits from scratch. */
+    @FunctionalInterface
+    interface Counter {
+        int count() throws IOException;
+    }
+
+    private record Offset(String tag, ObjectId from, ObjectId head, int count) {
+        private static @Nullable Offset read(DataInputStream in, List<String> include, List<String> exclude) throws IOException {
+            if (!include.equals(readStrings(in)) || !exclude.equals(readStrings(in))) return null;
+
+            return new Offset(in.readUTF(), GitCache.readId(in), GitCache.readId(in), in.readInt());
+        }
+
+        private void write(DataOutputStream out, List<String> include, List<String> exclude) throws IOException {
+            writeStrings(out, include);
+            writeStrings(out, exclude);
+            out.writeUTF(this.tag);
+            GitCache.writeId(out, this.from);
+            GitCache.writeId(out, this.head);
+            out.writeInt(this.count);
+        }
+
+        private static List<String> readStrings(DataInputStream in) throws IOException {
+            int size = in.readInt();
+            var ret = new ArrayList<String>(size);
+            for (int i = 0; i < size; i++)
+                ret.add(in.readUTF());
+            return ret;
+        }
+
+        private static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+            out.writeInt(strings.size());
+            for (var s : strings)
+                out.writeUTF(s);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryBuilder;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.util.FS;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A process-wide pool of open repositories, keyed by their canonical Git directory.
+ * <p>
+ * Every GitVersion of a build usually reads the same repository, so they lease it from here instead of opening it
+ * again. This way the ref database, the pack list, the config and the {@linkplain #getTags(Git, String, boolean) tag
+ * indexes} are only loaded once. Leases are reference counted, and a repository that is no longer leased by anything
+ * is closed after it has been idle for {@linkplain #IDLE_TIMEOUT a while}, unless it is leased again before then.
+ */
+final class RepositoryPool {
+    /** How long a repository stays open after its last lease is released, in milliseconds. */
+    private static final long IDLE_TIMEOUT = 30_000;
+
+    private static final Map<File, Entry> REPOSITORIES = new HashMap<>();
+    private static @Nullable ScheduledThreadPoolExecutor evictor;
+
+    private RepositoryPool() { }
+
+    /**
+     * Leases the repository in the given Git directory, opening it if it is not open yet. The lease must be
+     * {@linkplain #release(Git) released} once it is no longer used.
+     *
+     * @param gitDir The Git directory, or a directory containing one as {@code .git}
+     * @return The leased repository, which must not be closed directly
+     * @throws IOException If the repository could not be opened
+     */
+    static synchronized Git lease(File gitDir) throws IOException {
+        // matches Git.open(File)
+        var key = RepositoryCache.FileKey.lenient(gitDir, FS.DETECTED).getFile().getCanonicalFile();
+
+        var entry = REPOSITORIES.get(key);
+        if (entry == null) {
+            var repository = new RepositoryBuilder().setFS(FS.DETECTED).setGitDir(key).setMustExist(true).build();
+            REPOSITORIES.put(key, entry = new Entry(key, repository));
+        }
+
+        entry.leases++;
+        if (entry.eviction != null) {
+            entry.eviction.cancel(false);
+            entry.eviction = null;
+        }
+
+        return Git.wrap(entry.repository);
+    }
+
+    /**
+     * Releases a lease of a repository. Once it has no leases left, it is closed after being idle for a while.
+     *
+     * @param git The leased repository
+     */
+    static synchronized void release(Git git) {
+        var entry = find(git.getRepository());
+        if (entry == null || --entry.leases > 0) return;
+
+        synchronized (entry.tags) {
+            entry.tags.clear();
+        }
+        entry.eviction = evictor().schedule(() -> evict(entry), IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the tag index of a leased repository, loading it if no lease has loaded it yet. The indexes are shared by
+     * every lease of the repository, and dropped once its last lease is released so that the next build reads the
+     * tags again.
+     *
+     * @param git       The leased repository
+     * @param tagPrefix The prefix the tag names must start with, or {@code null} to index all tags
+     * @param cache     Whether to use the persistent tag cache when loading the index
+     * @return The tag index
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     * @see TagIndex#load(Git, String, boolean)
+     */
+    static TagIndex getTags(Git git, @Nullable String tagPrefix, boolean cache) throws IOException {
+        Entry entry;
+        synchronized (RepositoryPool.class) {
+            entry = find(git.getRepository());
+        }
+        if (entry == null) return TagIndex.load(git, tagPrefix, cache);
+
+        synchronized (entry.tags) {
+            var tags = entry.tags.get(tagPrefix);
+            if (tags == null)
+                entry.tags.put(tagPrefix, tags = TagIndex.load(git, tagPrefix, cache));
+
+            return tags;
+        }
+    }
+
+    private static @Nullable Entry find(Repository repository) {
+        for (var entry : REPOSITORIES.values()) {
+            if (entry.repository == repository) return entry;
+        }
+
+        return null;
+    }
+
+    private static synchronized void evict(Entry entry) {
+        if (entry.leases > 0 || REPOSITORIES.get(entry.key) != entry) return;
+
+        REPOSITORIES.remove(entry.key);
+        entry.repository.close();
+    }
+
+    private static ScheduledThreadPoolExecutor evictor() {
+        if (evictor == null) {
+            evictor = new ScheduledThreadPoolExecutor(1, r -> {
+                var thread = new Thread(r, "GitVersion Repository Pool");
+                thread.setDaemon(true);
+                return thread;
+            });
+            evictor.setRemoveOnCancelPolicy(true);
+            evictor.setKeepAliveTime(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+            evictor.allowCoreThreadTimeOut(true);
+        }
+
+        return evictor;
+    }
+
+    private static final class Entry {
+        private final File key;
+        private final Repository repository;
+        /** The tag indexes loaded by the leases, keyed by their tag prefix, or {@code null} for all tags. */
+        private final Map<@Nullable String, TagIndex> tags = new HashMap<>();
+        private int leases;
+        private @Nullable ScheduledFuture<?> eviction;
+
+        private Entry(File key, Repository repository) {
+            this.key = key;
+            this.repository = repository;
+        }
+    }
+}
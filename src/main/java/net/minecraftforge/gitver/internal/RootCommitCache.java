@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the root commit at the end of the first-parent history of a commit, optionally using a persistent cache
+ * stored in the {@linkplain GitCache GitVersion cache directory}.
+ * <p>
+ * Only first parents are followed, and commits are read from the commit-graph if the repository has one, or parsed
+ * without their bodies otherwise. Since a commit's first-parent history can never change, the cache stores the root
+ * found for each of the last few commits the walk started from. The next walk stops as soon as it reaches one of
+ * them, which is usually the previous {@code HEAD} only a few commits away.
+ * <p>
+ * The root is not cached once for the whole repository, because it depends on the starting commit if the repository
+ * has several roots. A commit's root is only known for certain once its first-parent history reaches a commit whose
+ * root is already known, which is what the remembered starting commits are for.
+ */
+final class RootCommitCache {
+    private static final int VERSION = 1;
+    private static final String NAME = "roots.idx";
+    /** The number of starting commits to remember. */
+    private static final int MAX_ENTRIES = 16;
+
+    private RootCommitCache() { }
+
+    /**
+     * Finds the root commit of the given commit's first-parent history.
+     *
+     * @param repository The repository to find the root commit in
+     * @param commit     The commit to start from
+     * @param cache      The cache to use, or {@code null} to not use the cache
+     * @return The root commit
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     */
+    static ObjectId find(Repository repository, AnyObjectId commit, @Nullable GitCache cache) throws IOException {
+        var cached = cache != null ? cache.read(NAME, VERSION, RootCommitCache::read) : null;
+        var roots = cached != null ? cached : new ArrayList<Entry>();
+        var known = new HashMap<ObjectId, ObjectId>(roots.size());
+        for (var entry : roots)
+            known.put(entry.commit, entry.root);
+
+        var root = known.get(commit);
+        if (root != null) return root;
+
+        try (var graph = CommitGraphWalk.open(repository)) {
+            root = graph != null ? walk(graph, commit, known) : walk(repository, commit, known);
+        }
+
+        if (cache != null) {
+            roots.removeIf(entry -> entry.commit.equals(commit));
+            roots.add(new Entry(commit.copy(), root));
+            var entries = roots.subList(Math.max(0, roots.size() - MAX_ENTRIES), roots.size());
+            cache.write(NAME, VERSION, out -> write(out, entries));
+        }
+
+        return root;
+    }
+
+    private static ObjectId walk(CommitGraphWalk graph, AnyObjectId commit, Map<ObjectId, ObjectId> known) throws IOException {
+        var nodes = new HashMap<Integer, ObjectId>(known.size());
+        for (var entry : known.entrySet()) {
+            int node = graph.lookup(entry.getKey());
+            if (node >= 0) nodes.put(node, entry.getValue());
+        }
+
+        int node = graph.lookup(commit);
+        if (node < 0) throw new IOException("Missing commit: " + commit.name());
+
+        for (int[] parents; (parents = graph.parents(node)).length > 0; ) {
+            node = parents[0];
+
+            var root = nodes.get(node);
+            if (root != null) return root;
+        }
+
+        return graph.id(node);
+    }
+
+    private static ObjectId walk(Repository repository, AnyObjectId commit, Map<ObjectId, ObjectId> known) throws IOException {
+        try (var walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+
+            var c = walk.parseCommit(commit);
+            while (c.getParentCount() > 0) {
+                c = walk.parseCommit(c.getParent(0));
+
+                var root = known.get(c);
+                if (root != null) return root;
+            }
+
+            return c.copy();
+        }
+    }
+
+    private static List<Entry> read(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        var ret = new ArrayList<Entry>(size);
+        for (int i = 0; i < size; i++)
+            ret.add(new Entry(GitCache.readId(in), GitCache.readId(in)));
+        return ret;
+    }
+
+    private static void write(DataOutputStream out, List<Entry> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (var entry : entries) {
+            GitCache.writeId(out, entry.commit);
+            GitCache.writeId(out, entry.root);
+        }
+    }
+
+    private record Entry(ObjectId commit, ObjectId root) { }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.UnmodifiableView;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, bidirectional index of the tags in a Git repository.
+ * <p>
+ * Tagged commits are keyed by their {@link ObjectId} in an {@link ObjectIdOwnerMap}, so looking up the tags of a
+ * walked commit never needs to convert it to a hex string. A commit may have multiple tags. GitVersion builds one
+ * index per opened repository and shares it between version calculation and changelog generation.
+ *
+ * @see #load(Git, String)
+ */
+public final class TagIndex {
+    private final ObjectIdOwnerMap<Entry> commits = new ObjectIdOwnerMap<>();
+    private final Map<String, Entry> tags = new HashMap<>();
+
+    private TagIndex() { }
+
+    /**
+     * Builds the tag index for the given Git repository in a single pass over its tag refs.
+     *
+     * @param git       The Git repository to index the tags of
+     * @param tagPrefix The prefix the tag names must start with, or {@code null} to index all tags
+     * @return The tag index
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     * @see GitUtils#getTags(Git, String)
+     */
+    public static TagIndex load(Git git, @Nullable String tagPrefix) throws IOException {
+        return load(git, tagPrefix, false);
+    }
+
+    /**
+     * Builds the tag index for the given Git repository in a single pass over its tag refs, optionally using the
+     * {@linkplain TagPeelCache persistent tag cache} to avoid peeling tags that were already peeled in a previous run.
+     *
+     * @param git       The Git repository to index the tags of
+     * @param tagPrefix The prefix the tag names must start with, or {@code null} to index all tags
+     * @param cache     Whether to use the persistent tag cache
+     * @return The tag index
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     * @see GitUtils#getTags(Git, String)
+     */
+    public static TagIndex load(Git git, @Nullable String tagPrefix, boolean cache) throws IOException {
+        var index = new TagIndex();
+        if (cache) {
+            for (var tag : TagPeelCache.peelTags(git, tagPrefix, GitCache.of(git.getRepository())).entrySet())
+                index.add(tag.getKey(), tag.getValue());
+        } else {
+            for (var ref : GitUtils.getTags(git, tagPrefix))
+                index.add(ref.getName().substring(Constants.R_TAGS.length()), GitUtils.peel(git, ref));
+        }
+
+        return index;
+    }
+
+    private void add(String tag, ObjectId commit) {
+        var entry = this.commits.get(commit);
+        if (entry == null) this.commits.add(entry = new Entry(commit));
+        entry.add(tag);
+        this.tags.put(tag, entry);
+    }
+
+    /**
+     * Gets the commit (or other object) that the given tag points to.
+     *
+     * @param tag The tag name, without {@code refs/tags/}
+     * @return The peeled object ID, or {@code null} if the tag is not in this index
+     */
+    public @Nullable ObjectId getCommit(String tag) {
+        return this.tags.get(tag);
+    }
+
+    /**
+     * Gets the tag of the given commit. If the commit has multiple tags, the last one by name is used.
+     *
+     * @param commit The commit to get the tag of
+     * @return The tag name, or {@code null} if the commit is not tagged
+     */
+    public @Nullable String getTag(AnyObjectId commit) {
+        var entry = this.commits.get(commit);
+        return entry != null ? entry.tags[entry.tags.length - 1] : null;
+    }
+
+    /**
+     * Gets all tags of the given commit.
+     *
+     * @param commit The commit to get the tags of
+     * @return The tag names, sorted by name
+     */
+    public @UnmodifiableView List<String> getTags(AnyObjectId commit) {
+        var entry = this.commits.get(commit);
+        return entry != null ? Collections.unmodifiableList(Arrays.asList(entry.tags)) : Collections.emptyList();
+    }
+
+    /**
+     * @param commit The commit to check
+     * @return {@code true} if the given commit has at least one tag
+     */
+    public boolean isTagged(AnyObjectId commit) {
+        return this.commits.contains(commit);
+    }
+
+    /** @return All tag names in this index */
+    public @UnmodifiableView Set<String> getTagNames() {
+        return Collections.unmodifiableSet(this.tags.keySet());
+    }
+
+    /** @return {@code true} if this index does not contain any tags */
+    public boolean isEmpty() {
+        return this.tags.isEmpty();
+    }
+
+    /**
+     * Converts this index to a map of commit hashes to tag names.
+     *
+     * @return The commit hashes to tag map
+     * @see #getTag(AnyObjectId)
+     */
+    Map<String, String> toCommitToTagMap() {
+        var ret = new HashMap<String, String>();
+        for (var entry : this.commits)
+            ret.put(entry.name(), entry.tags[entry.tags.length - 1]);
+        return ret;
+    }
+
+    /**
+     * Converts this index to a map of tag names to commit hashes.
+     *
+     * @return The tags to commit hash map
+     */
+    Map<String, String> toTagToCommitMap() {
+        var ret = new HashMap<String, String>();
+        for (var tag : this.tags.entrySet())
+            ret.put(tag.getKey(), tag.getValue().name());
+        return ret;
+    }
+
+    private static final class Entry extends ObjectIdOwnerMap.Entry {
+        private String[] tags = new String[0];
+
+        private Entry(AnyObjectId id) {
+            super(id);
+        }
+
+        private void add(String tag) {
+            this.tags = Arrays.copyOf(this.tags, this.tags.length + 1);
+            this.tags[this.tags.length - 1] = tag;
+        }
+    }
+}
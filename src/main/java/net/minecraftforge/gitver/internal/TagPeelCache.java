@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.internal.storage.file.RefDirectory;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A persistent cache of peeled tags, stored in the {@linkplain GitCache GitVersion cache directory}.
+ * <p>
+ * Peeling an annotated tag that {@code packed-refs} does not already carry peeled requires reading the tag object.
+ * This cache stores the peeled commit of every tag together with a {@linkplain Snapshot snapshot} of
+ * {@code packed-refs} and the {@code refs/tags} directories. As long as the snapshot still matches, the tags are read
+ * straight from the cache without touching the ref database. Otherwise, the tags are listed again but only the ones
+ * that were added or moved since the last run are peeled.
+ */
+final class TagPeelCache {
+    private static final int VERSION = 1;
+
+    private TagPeelCache() { }
+
+    /**
+     * Gets the peeled tags of the given repository, using and updating the cache.
+     *
+     * @param git       The Git repository to get the tags from
+     * @param tagPrefix The prefix the tag names must start with, or {@code null} to get all tags
+     * @param cache     The cache to use
+     * @return A map of tag names (without {@code refs/tags/}) to peeled object IDs, sorted by name
+     * @throws IOException If an I/O error occurs when reading the Git repository
+     */
+    static Map<String, ObjectId> peelTags(Git git, @Nullable String tagPrefix, GitCache cache) throws IOException {
+        var prefix = Objects.requireNonNullElse(tagPrefix, "");
+        var name = prefix.isEmpty() ? "tags.idx" : "tags-%08x.idx".formatted(prefix.hashCode());
+
+        var snapshot = Snapshot.take(git.getRepository());
+        var cached = cache.read(name, VERSION, in -> Entries.read(in, prefix));
+        if (cached != null && snapshot != null && snapshot.isUnmodified(cached.snapshot))
+            return cached.peeled();
+
+        var entries = new Entries(snapshot, new LinkedHashMap<>());
+        for (var ref : GitUtils.getTags(git, tagPrefix)) {
+            var tag = ref.getName().substring(Constants.R_TAGS.length());
+            var id = ref.getObjectId();
+            var previous = cached != null ? cached.tags.get(tag) : null;
+
+            // tag and commit objects are immutable, so a tag that still points to the same object peels the same way
+            var peeled = previous != null && previous.id.equals(id) ? previous.peeled : GitUtils.peel(git, ref);
+            entries.tags.put(tag, new Entry(id, peeled));
+        }
+
+        cache.write(name, VERSION, out -> entries.write(out, prefix));
+        return entries.peeled();
+    }
+
+    private record Entry(ObjectId id, ObjectId peeled) { }
+
+    private record Entries(@Nullable Snapshot snapshot, Map<String, Entry> tags) {
+        private Map<String, ObjectId> peeled() {
+            var ret = new LinkedHashMap<String, ObjectId>(this.tags.size());
+            for (var tag : this.tags.entrySet())
+                ret.put(tag.getKey(), tag.getValue().peeled);
+            return ret;
+        }
+
+        private static @Nullable Entries read(DataInputStream in, String prefix) throws IOException {
+            if (!prefix.equals(in.readUTF())) return null;
+
+            var snapshot = in.readBoolean() ? Snapshot.read(in) : null;
+            int size = in.readInt();
+            var tags = new LinkedHashMap<String, Entry>(size);
+            for (int i = 0; i < size; i++) {
+                var tag = in.readUTF();
+                tags.put(tag, new Entry(GitCache.readId(in), GitCache.readId(in)));
+            }
+
+            return new Entries(snapshot, tags);
+        }
+
+        private void write(DataOutputStream out, String prefix) throws IOException {
+            out.writeUTF(prefix);
+            out.writeBoolean(this.snapshot != null);
+            if (this.snapshot != null) this.snapshot.write(out);
+
+            out.writeInt(this.tags.size());
+            for (var tag : this.tags.entrySet()) {
+                out.writeUTF(tag.getKey());
+                GitCache.writeId(out, tag.getValue().id);
+                GitCache.writeId(out, tag.getValue().peeled);
+            }
+        }
+    }
+
+    /**
+     * A cheap snapshot of where tags are stored: the size and modification time of {@code packed-refs}, and the
+     * modification times of the {@code refs/tags} directory and its subdirectories. Creating, moving or deleting a
+     * loose tag replaces an entry in its directory, which updates that directory's modification time.
+     *
+     * @param packedSize     The size of {@code packed-refs}, or {@code -1} if it does not exist
+     * @param packedModified The modification time of {@code packed-refs} in nanoseconds
+     * @param looseHash      A hash of the paths and modification times of the loose tag directories
+     * @param newest         The newest modification time in this snapshot, in nanoseconds
+     * @param taken          The time this snapshot was taken, in nanoseconds
+     */
+    private record Snapshot(long packedSize, long packedModified, long looseHash, long newest, long taken) {
+        /**
+         * Modifications made within this window of the snapshot being taken might not have changed any modification
+         * time yet, as file systems only store them at a limited resolution.
+         */
+        private static final long RACY_NANOS = TimeUnit.MILLISECONDS.toNanos(2500);
+
+        /**
+         * Takes a snapshot of the given repository's tag storage.
+         *
+         * @param repository The repository
+         * @return The snapshot, or {@code null} if the repository does not store its refs as files
+         */
+        private static @Nullable Snapshot take(Repository repository) throws IOException {
+            if (!(repository.getRefDatabase() instanceof RefDirectory)) return null;
+
+            var taken = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+            var packedRefs = new File(repository.getCommonDirectory(), Constants.PACKED_REFS).toPath();
+            long packedSize = -1, packedModified = 0;
+            try {
+                var attributes = Files.readAttributes(packedRefs, BasicFileAttributes.class);
+                packedSize = attributes.size();
+                packedModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            } catch (NoSuchFileException ignored) { }
+
+            var tags = new File(repository.getCommonDirectory(), Constants.R_TAGS).toPath();
+            var loose = new long[] { 0, packedModified };
+            if (Files.isDirectory(tags)) {
+                Files.walkFileTree(tags, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                        var modified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+                        loose[0] = 31 * loose[0] + tags.relativize(dir).toString().hashCode();
+                        loose[0] = 31 * loose[0] + modified;
+                        loose[1] = Math.max(loose[1], modified);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+
+            return new Snapshot(packedSize, packedModified, loose[0], loose[1], taken);
+        }
+
+        /**
+         * @param cached The snapshot stored in the cache
+         * @return {@code true} if nothing changed since the cached snapshot was taken
+         */
+        private boolean isUnmodified(@Nullable Snapshot cached) {
+            return cached != null
+                && cached.packedSize == this.packedSize
+                && cached.packedModified == this.packedModified
+                && cached.looseHash == this.looseHash
+                && cached.taken - cached.newest > RACY_NANOS;
+        }
+
+        private static Snapshot read(DataInputStream in) throws IOException {
+            return new Snapshot(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong());
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeLong(this.packedSize);
+            out.writeLong(this.packedModified);
+            out.writeLong(this.looseHash);
+            out.writeLong(this.newest);
+            out.writeLong(this.taken);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.api.errors.InvalidConfigurationException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Describes every commit in a range in a single topological walk, parents first.
+ * <p>
+ * A commit with no matching tag of its own is described from the descriptions of its parents. With a single parent,
+ * it is the parent's description plus one commit, which is exactly what {@link DescribeWalk} would find for it. A
+ * merge commit is described with the parent whose tag is the nearest, where the commits that only the other parents
+ * can reach are added to its depth. This only walks the commits between the parents, instead of describing the merge
+ * with a walk of its own.
+ * <p>
+ * The commits since the tag that changed the project are counted the same way. A commit only adds itself to the count
+ * of its parent, and a merge that is not simplified away by the filter unites the counted commits of its parents if
+ * they are described with the same tag. Only when that is not possible are the commits counted with a walk of their
+ * own. The description of a commit is released once all of its children have been described.
+ *
+ * @see #walk(ObjectReader, DescribeWalk, AnyObjectId, AnyObjectId, Function, BiConsumer)
+ */
+final class VersionWalk extends RevWalk {
+    private final DescribeWalk describe;
+    private final @Nullable Function<RevWalk, RevFilter> changes;
+    private @Nullable RevFilter filter;
+    /** Walks the commits between the parents of merges. */
+    private final RevWalk between;
+
+    private VersionWalk(ObjectReader reader, DescribeWalk describe, @Nullable Function<RevWalk, RevFilter> changes) {
+        super(reader);
+        this.describe = describe;
+        this.changes = changes;
+        this.between = new RevWalk(reader);
+        this.between.setRetainBody(false);
+    }
+
+    /**
+     * Describes every commit reachable from {@code head} that is not reachable from the parents of {@code start}.
+     *
+     * @param reader   The reader to read the repository with
+     * @param describe The describe walk to describe commits with
+     * @param start    The oldest commit to describe, or {@code null} to describe all commits
+     * @param head     The youngest commit to describe
+     * @param changes  Creates the filter of the commits that changed the project, as given to
+     *                 {@link DescribeWalk#describe(AnyObjectId, Function)}, or {@code null} to not count them
+     * @param action   Receives every commit that could be described along with its description, parents first
+     * @throws IOException                   If an I/O error occurs when reading the Git repository
+     * @throws InvalidConfigurationException If the repository's {@code core.abbrev} is invalid
+     */
+    static void walk(ObjectReader reader, DescribeWalk describe, @Nullable AnyObjectId start, AnyObjectId head, @Nullable Function<RevWalk, RevFilter> changes, BiConsumer<RevCommit, DescribeWalk.Result> action) throws IOException, InvalidConfigurationException {
+        try (var walk = new VersionWalk(reader, describe, changes)) {
+            walk.setRetainBody(false);
+            walk.sort(RevSort.TOPO);
+            walk.sort(RevSort.REVERSE, true);
+            walk.markStart(walk.parseCommit(head));
+
+            // the commits between the tags that the start's parents are described with and the start are walked too,
+            // so the commits after the start can be described from them
+            RevCommit[] before = null;
+            if (start != null) {
+                before = walk.parseCommit(start).getParents();
+                for (var parent : before) {
+                    var version = describe.describe(parent, null);
+                    if (version == null) continue;
+
+                    for (var p : walk.parseCommit(version.commit()).getParents())
+                        walk.markUninteresting(p);
+                }
+            }
+
+            var commits = new ArrayList<Commit>();
+            for (RevCommit next; (next = walk.next()) != null; ) {
+                var commit = (Commit) next;
+                commit.index = commits.size();
+                commit.parentCount = commit.getParentCount();
+                for (var parent : commit.getParents())
+                    ((Commit) parent).children++;
+                commits.add(commit);
+            }
+
+            if (before != null) {
+                for (var parent : before)
+                    ((Commit) parent).before = true;
+                for (int i = commits.size() - 1; i >= 0; i--) {
+                    var commit = commits.get(i);
+                    if (!commit.before) continue;
+
+                    for (var parent : commit.getParents())
+                        ((Commit) parent).before = true;
+                }
+            }
+
+            walk.filter = changes != null ? changes.apply(walk) : null;
+            for (var commit : commits) {
+                // the filter may rewrite the parents of merges
+                var parents = commit.getParents().clone();
+                var version = commit.version = walk.describe(commit, parents);
+                for (var parent : parents)
+                    release((Commit) parent);
+
+                if (version != null && !commit.before) action.accept(commit, version);
+            }
+        }
+    }
+
+    private DescribeWalk.@Nullable Result describe(Commit c, RevCommit[] parents) throws IOException, InvalidConfigurationException {
+        var tag = this.describe.getTag(c);
+        if (tag != null) {
+            var count = -1;
+            if (this.filter != null) {
+                c.changes = new BitSet();
+                if (this.filter.include(this, c)) {
+                    c.changes.set(c.index);
+                    count = 0;
+                }
+            }
+
+            return new DescribeWalk.Result(tag, c.copy(), 0, count, this.describe.getHash(c));
+        }
+
+        if (parents.length == 0) return null;
+
+        if (parents.length == 1) {
+            var parent = (Commit) parents[0];
+            var version = this.version(parent);
+            if (version == null) return null;
+
+            var count = -1;
+            if (this.filter != null) {
+                c.changes = this.take(parent);
+                var changed = this.filter.include(this, c);
+                if (changed && c.changes != null) c.changes.set(c.index);
+                count = changed ? version.count() + 1 : version.count();
+            }
+
+            return new DescribeWalk.Result(version.tag(), version.commit(), version.depth() + 1, count, this.describe.getHash(c));
+        }
+
+        // a tag reachable from a parent is reachable from the merge, plus the commits only the other parents reach
+        DescribeWalk.Result best = null;
+        RevCommit bestCommit = null;
+        int bestDepth = 0;
+        for (int i = 0; i < parents.length; i++) {
+            var version = this.version((Commit) parents[i]);
+            if (version == null || (best != null && isDescribedBefore(parents, i, version))) continue;
+
+            var depth = version.depth() + 1 + this.countBetween(parents, i);
+            var commit = this.parseCommit(version.commit());
+            if (best == null || depth < bestDepth || (depth == bestDepth && commit.getCommitTime() > bestCommit.getCommitTime())) {
+                best = version;
+                bestCommit = commit;
+                bestDepth = depth;
+            }
+        }
+        if (best == null) return null;
+
+        var count = this.filter != null ? this.countMerge(c, parents, bestCommit) : -1;
+        return new DescribeWalk.Result(best.tag(), best.commit(), bestDepth, count, this.describe.getHash(c));
+    }
+
+    /** @return {@code true} if a parent before the given one is described with the same tag */
+    private boolean isDescribedBefore(RevCommit[] parents, int index, DescribeWalk.Result version) {
+        for (int i = 0; i < index; i++) {
+            var other = ((Commit) parents[i]).version;
+            if (other != null && other.commit().equals(version.commit())) return true;
+        }
+
+        return false;
+    }
+
+    /** @return The number of commits reachable from the given parents, except from the one at the given index */
+    private int countBetween(RevCommit[] parents, int index) throws IOException {
+        var walk = this.between;
+        walk.reset();
+        for (int i = 0; i < parents.length; i++) {
+            var parent = walk.parseCommit(parents[i]);
+            if (i == index)
+                walk.markUninteresting(parent);
+            else
+                walk.markStart(parent);
+        }
+
+        int count = 0;
+        while (walk.next() != null) count++;
+        return count;
+    }
+
+    /**
+     * Counts the commits since the given tag that changed the project for a merge commit. If the filter simplifies the
+     * merge to a parent with the same tag, this is that parent's count. If it does not simplify it at all, and all of
+     * its parents have the same tag, these are the counted commits of all parents, plus the merge itself.
+     */
+    private int countMerge(Commit c, RevCommit[] parents, RevCommit tag) throws IOException {
+        var changed = this.filter.include(this, c);
+        var followed = c.getParents();
+
+        var united = true;
+        for (var parent : parents) {
+            var p = (Commit) parent;
+            // the filter cuts off the parents of a parent that only added the project
+            if (p.index < 0 || p.getParentCount() != p.parentCount) united = false;
+        }
+        for (var parent : followed) {
+            var p = (Commit) parent;
+            if (p.version == null || !tag.equals(p.version.commit()) || (changed && p.changes == null)) united = false;
+        }
+        if (!united) return this.count(tag, c);
+
+        if (!changed) {
+            var parent = (Commit) followed[0];
+            c.changes = this.take(parent);
+            return parent.version.count();
+        }
+
+        var changes = this.take((Commit) followed[0]);
+        for (int i = 1; i < followed.length; i++)
+            changes.or(((Commit) followed[i]).changes);
+        changes.set(c.index);
+
+        c.changes = changes;
+        return changes.cardinality() - 1;
+    }
+
+    /**
+     * Counts the commits from the given tag to the given commit that changed the project with a walk of its own, the
+     * same way as {@link GitUtils#countCommits(RevWalk, AnyObjectId, AnyObjectId, RevFilter)}. The counted commits are
+     * kept if they are all in the range.
+     */
+    private int count(AnyObjectId tag, Commit to) throws IOException {
+        try (var walk = new RevWalk(this.getObjectReader())) {
+            walk.setRetainBody(false);
+            walk.setRevFilter(this.changes.apply(walk));
+            walk.markStart(walk.parseCommit(to));
+            for (var parent : walk.parseCommit(tag).getParents())
+                walk.markUninteresting(parent);
+
+            var changes = new BitSet();
+            int count = -1;
+            for (RevCommit commit; (commit = walk.next()) != null; count++) {
+                commit.disposeBody();
+                if (changes != null && this.lookupOrNull(commit) instanceof Commit c && c.index >= 0)
+                    changes.set(c.index);
+                else
+                    changes = null;
+            }
+
+            to.changes = changes;
+            return count;
+        }
+    }
+
+    /**
+     * Gets the description of the given parent. Parents outside of the range are described with a walk of their own,
+     * once.
+     */
+    private DescribeWalk.@Nullable Result version(Commit parent) throws IOException, InvalidConfigurationException {
+        if (parent.index >= 0 || parent.described) return parent.version;
+
+        parent.described = true;
+        var version = this.describe.describe(parent, this.changes);
+        if (version != null && version.count() == -2)
+            version = new DescribeWalk.Result(version.tag(), version.commit(), version.depth(), this.count(version.commit(), parent), version.hash());
+
+        return parent.version = version;
+    }
+
+    /** @return The counted commits of the given parent, which are only copied if it has other children left */
+    private @Nullable BitSet take(Commit parent) {
+        var changes = parent.changes;
+        if (changes == null || parent.index < 0) return null;
+        if (parent.children > 1) return (BitSet) changes.clone();
+
+        parent.changes = null;
+        return changes;
+    }
+
+    /** Releases the description of the given parent once all of its children have been described. */
+    private static void release(Commit parent) {
+        if (parent.index < 0 || --parent.children > 0) return;
+
+        parent.version = null;
+        parent.changes = null;
+    }
+
+    @Override
+    public void close() {
+        this.between.close();
+        super.close();
+    }
+
+    @Override
+    protected RevCommit createCommit(AnyObjectId id) {
+        return new Commit(id);
+    }
+
+    private static final class Commit extends RevCommit {
+        /** The position of the commit in the walk, or {@code -1} if it is outside of the range. */
+        private int index = -1;
+        private int parentCount;
+        private int children;
+        /** Whether the commit is reachable from the parents of the start, so it is not reported. */
+        private boolean before;
+        private boolean described;
+        private DescribeWalk.@Nullable Result version;
+        /** The positions of the commits since the tag that changed the project, or {@code null} if unknown. */
+        private @Nullable BitSet changes;
+
+        private Commit(AnyObjectId id) {
+            super(id);
+        }
+    }
+}
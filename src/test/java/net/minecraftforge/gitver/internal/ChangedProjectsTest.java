@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ChangedProjectsTest {
+    private static final List<ChangedProjects.Paths> PROJECTS = List.of(
+        new ChangedProjects.Paths(List.of(), List.of("sub", "sub/nested")),
+        new ChangedProjects.Paths(List.of("sub"), List.of("sub/nested")),
+        new ChangedProjects.Paths(List.of("sub/nested"), List.of())
+    );
+
+    /** The size of a row of the index, which is the commit ID and one word of bits for up to 64 projects. */
+    private static final int ROW = 20 + 8;
+
+    @TempDir
+    File dir;
+
+    private TestRepository repo;
+    private GitCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.repo = TestRepository.createDefault(this.dir, true);
+        this.cache = GitCache.of(this.repo.git.getRepository());
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.repo.close();
+    }
+
+    @Test
+    void counts() throws Exception {
+        this.check(PROJECTS, null);
+    }
+
+    @Test
+    void persistentIndex() throws Exception {
+        this.check(PROJECTS, this.cache);
+        var index = this.getIndex();
+        var length = index.length();
+
+        // the rows are read back instead of diffing the commits again, so nothing is appended
+        this.check(PROJECTS, this.cache);
+        assertEquals(length, index.length());
+
+        this.repo.commit("Change sub", "sub/Changed.java");
+        this.repo.commit("Change the root project", "src/Changed.java");
+        this.check(PROJECTS, this.cache);
+        assertEquals(length + 2 * ROW, index.length());
+    }
+
+    @Test
+    void truncatedIndex() throws Exception {
+        this.check(PROJECTS, this.cache);
+        var index = this.getIndex();
+        var length = index.length();
+
+        // an incomplete last row cannot be appended to, so the index is written again
+        try (var out = new RandomAccessFile(index, "rw")) {
+            out.setLength(length - 3);
+        }
+        this.check(PROJECTS, this.cache);
+        assertEquals(length, index.length());
+    }
+
+    @Test
+    void otherPaths() throws Exception {
+        this.check(PROJECTS, this.cache);
+        var index = this.getIndex();
+
+        this.check(PROJECTS.subList(1, 3), this.cache);
+        assertNotEquals(index, this.getIndex());
+    }
+
+    /** Checks that the commits counted for every project are the same as counting them without ChangedProjects. */
+    private void check(List<ChangedProjects.Paths> projects, @Nullable GitCache cache) throws Exception {
+        var commits = this.repo.commits;
+        try (var changes = new ChangedProjects(this.repo.git.getRepository(), projects, cache)) {
+            for (var paths : projects) {
+                for (var from : List.of(commits.get(0), commits.get(2), commits.get(6), commits.get(8))) {
+                    for (var to : commits) {
+                        var expected = this.repo.countCommits(from, to, paths.include(), paths.exclude());
+                        assertEquals(expected, changes.count(paths, from, to), "Count of " + paths + " from " + from.name() + " to " + to.name());
+                    }
+                }
+            }
+        }
+    }
+
+    /** @return The only index in the cache */
+    private File getIndex() {
+        var files = new File(this.repo.git.getRepository().getDirectory(), "gitversion").listFiles((d, name) -> name.startsWith("changes-"));
+        assertEquals(1, files != null ? files.length : 0, "Number of indices");
+        return files[0];
+    }
+}
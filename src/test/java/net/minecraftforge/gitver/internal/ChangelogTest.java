@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import net.minecraftforge.gitver.api.GitVersion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares generated changelogs with the output of GitVersion before the changelog was generated from a single walk.
+ * The expected changelogs were generated from the same history, which always has the same commit hashes.
+ */
+class ChangelogTest {
+    private static final String MARKDOWN = """
+        ### [main Changelog](https://github.com/example/repo/compare/4e54cc9aefc557f81e8b3aa7cf3818b9115daeee...013cc121cdcec1adea77fc8a8a406974ca68635f)
+         - 1.1.1 Change the nested project
+         - [1.1.0](https://github.com/example/repo/tree/1.1.0) Release
+         - 1.0.7 Fix the build ([#12](https://github.com/example/repo/pull/12))
+         - 1.0.6 Merge branch 'feature'
+         - 1.0.5 Work on main meanwhile
+         - 1.0.4 Finish the feature
+                 It also changes the nested project.
+         - 1.0.3 Start a feature in sub
+         - 1.0.2 Add the sub project
+         - 1.0.1 Add the root project
+         - [1.0.0](https://github.com/example/repo/tree/1.0.0) Initial commit
+        """;
+
+    private static final String PLAIN_TEXT = """
+        main Changelog
+        1.1
+        ===
+         - 1.1.1 Change the nested project
+         - 1.1.0 Release
+
+        1.0
+        ===
+         - 1.0.7 Fix the build (#12)
+         - 1.0.6 Merge branch 'feature'
+         - 1.0.5 Work on main meanwhile
+         - 1.0.4 Finish the feature
+                 It also changes the nested project.
+         - 1.0.3 Start a feature in sub
+         - 1.0.2 Add the sub project
+         - 1.0.1 Add the root project
+         - 1.0.0 Initial commit
+
+        """;
+
+    @TempDir
+    File dir;
+
+    @Test
+    void markdown() throws Exception {
+        TestRepository.createDefault(this.dir, false).close();
+        try (var version = GitVersion.builder().root(this.dir).build()) {
+            assertEquals(MARKDOWN, version.generateChangelog(null, "https://github.com/example/repo", false));
+        }
+    }
+
+    @Test
+    void plainText() throws Exception {
+        TestRepository.createDefault(this.dir, false).close();
+        try (var version = GitVersion.builder().root(this.dir).build()) {
+            assertEquals(PLAIN_TEXT, version.generateChangelog(null, null, true));
+            assertEquals(PLAIN_TEXT, version.generateChangelog("1.0", null, true));
+        }
+    }
+
+    @Test
+    void cached() throws Exception {
+        TestRepository.createDefault(this.dir, false).close();
+        for (int i = 0; i < 2; i++) {
+            try (var version = GitVersion.builder().root(this.dir).cache(true).build()) {
+                assertEquals(PLAIN_TEXT, version.generateChangelog(null, null, true));
+            }
+        }
+    }
+}
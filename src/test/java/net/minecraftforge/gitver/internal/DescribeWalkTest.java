@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares {@link DescribeWalk} with {@code DescribeCommand}, and the commits it counts with {@code LogCommand}, for
+ * every commit of the test history.
+ */
+class DescribeWalkTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void root() throws Exception {
+        this.check("", new String[0], List.of(), List.of("sub", "sub/nested"));
+    }
+
+    @Test
+    void subproject() throws Exception {
+        this.check("sub-", new String[0], List.of("sub"), List.of("sub/nested"));
+    }
+
+    @Test
+    void withoutTags() throws Exception {
+        this.check("nested-", new String[0], List.of("sub/nested"), List.of());
+    }
+
+    @Test
+    void filters() throws Exception {
+        this.check("", new String[] { "1.1*" }, List.of(), List.of());
+    }
+
+    @Test
+    void patternPrefix() throws Exception {
+        this.check("s?b-", new String[0], List.of("sub"), List.of());
+    }
+
+    /** Describes merges where tags on one side are found before the commits only the other side reaches. */
+    @Test
+    void merges() throws Exception {
+        try (var repo = TestRepository.create(this.dir)) {
+            var a = repo.commit("A", "a");
+            repo.tag("1.0", a, true);
+            repo.checkout("feature", true);
+            repo.commit("D", "sub/d");
+            var e = repo.commit("E", "e");
+            repo.tag("2.0-beta", e, false);
+
+            repo.checkout("main", false);
+            repo.commit("B", "b");
+            var c = repo.commit("C", "sub/c");
+            repo.tag("1.1", c, false);
+            repo.merge("feature", "M");
+
+            repo.checkout("other", true);
+            var f = repo.commit("F", "sub/f");
+            repo.tag("1.2", f, true);
+            repo.checkout("main", false);
+            repo.commit("G", "g");
+            repo.merge("other", "N");
+            repo.commit("H", "sub/h");
+
+            this.check(repo, "", new String[0], List.of(), List.of("sub"));
+            this.check(repo, "", new String[0], List.of("sub"), List.of());
+            this.check(repo, "2", new String[0], List.of(), List.of());
+        }
+    }
+
+    private void check(String tagPrefix, String[] filters, List<String> include, List<String> exclude) throws Exception {
+        try (var repo = TestRepository.createDefault(this.dir, true)) {
+            this.check(repo, tagPrefix, filters, include, exclude);
+        }
+    }
+
+    private void check(TestRepository repo, String tagPrefix, String[] filters, List<String> include, List<String> exclude) throws Exception {
+        var repository = repo.git.getRepository();
+        var tags = TagIndex.load(repo.git, DescribeWalk.isPattern(tagPrefix) ? null : tagPrefix);
+        try (var walk = new DescribeWalk(repository, tags, tagPrefix, filters)) {
+            for (var commit : repo.commits) {
+                var result = walk.describe(commit, w -> ChangedPathRevFilter.create(w, CommitGraphWalk.load(repository), include, exclude));
+                var actual = result != null ? result.tag() + '-' + result.depth() + '-' + result.hash() : null;
+                assertEquals(repo.describe(commit, tagPrefix, filters), actual, "Description of " + commit.name());
+
+                if (result != null && result.count() != -2)
+                    assertEquals(repo.countCommits(result.commit(), commit, include, exclude), result.count(), "Count of " + commit.name());
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitCacheTest {
+    @TempDir
+    File dir;
+
+    private Git git;
+    private GitCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.git = Git.init().setDirectory(this.dir).call();
+        this.cache = GitCache.of(this.git.getRepository());
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.git.close();
+    }
+
+    @Test
+    void roundTrip() {
+        var id = ObjectId.fromString("0123456789abcdef0123456789abcdef01234567");
+        this.cache.write("test.idx", 1, out -> {
+            out.writeUTF("value");
+            GitCache.writeId(out, id);
+        });
+
+        assertTrue(this.cache.file("test.idx").isFile());
+        assertEquals("value " + id.name(), this.cache.read("test.idx", 1, in -> in.readUTF() + ' ' + GitCache.readId(in).name()));
+    }
+
+    @Test
+    void missing() {
+        assertNull(this.cache.read("test.idx", 1, in -> in.readUTF()));
+    }
+
+    @Test
+    void otherVersion() {
+        this.cache.write("test.idx", 1, out -> out.writeUTF("value"));
+
+        assertNull(this.cache.read("test.idx", 2, in -> in.readUTF()));
+    }
+
+    @Test
+    void truncated() throws Exception {
+        this.cache.write("test.idx", 1, out -> out.writeUTF("value"));
+        try (var file = new RandomAccessFile(this.cache.file("test.idx"), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        assertNull(this.cache.read("test.idx", 1, in -> in.readUTF()));
+    }
+
+    @Test
+    void append() {
+        this.cache.write("test.idx", 1, out -> out.writeInt(1));
+        this.cache.append("test.idx", out -> out.writeInt(2));
+        this.cache.append("test.idx", out -> out.writeInt(3));
+
+        assertEquals(List.of(1, 2, 3), this.cache.read("test.idx", 1, in -> {
+            var ret = new ArrayList<Integer>();
+            while (in.available() > 0)
+                ret.add(in.readInt());
+            return ret;
+        }));
+    }
+
+    @Test
+    void appendWithoutWrite() {
+        this.cache.append("test.idx", out -> out.writeInt(1));
+
+        assertFalse(this.cache.file("test.idx").exists());
+    }
+
+    @Test
+    void deleteOthers() {
+        for (var name : List.of("a-1.idx", "a-2.idx", "a-3.idx", "b-1.idx"))
+            this.cache.write(name, 1, out -> { });
+
+        this.cache.deleteOthers("a-2.idx", name -> name.startsWith("a-"));
+
+        assertFalse(this.cache.file("a-1.idx").exists());
+        assertTrue(this.cache.file("a-2.idx").exists());
+        assertFalse(this.cache.file("a-3.idx").exists());
+        assertTrue(this.cache.file("b-1.idx").exists());
+    }
+}
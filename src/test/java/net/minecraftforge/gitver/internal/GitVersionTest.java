@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import net.minecraftforge.gitver.api.GitVersion;
+import org.eclipse.jgit.api.ResetCommand;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the info of every commit of the test history with the info GitVersion calculated before commits were
+ * described and counted by {@link DescribeWalk}, {@link VersionWalk} and {@link ChangedProjects}.
+ */
+class GitVersionTest {
+    private static final String[] PROJECTS = { "", "sub", "sub/nested" };
+
+    /**
+     * The info of the root, {@code sub}, and {@code sub/nested} projects with each commit checked out, as
+     * {@code tag.offset hash}, or {@code null} where a subproject does not exist yet.
+     */
+    private static final String[][] EXPECTED = {
+        { null, null, null },
+        { null, null, null },
+        { null, null, null },
+        { null, null, null },
+        { "1.0.1 g3c8e687", "1.0.2 g3c8e687", "0.0.0 00000000" },
+        { null, null, null },
+        { "1.0.2 ge597bed", "1.0.2 ge597bed", "0.0.0 00000000" },
+        { "1.0.3 gd52b1c7", "1.0.2 gd52b1c7", "0.0.0 00000000" },
+        { "1.1.0 g3529d9e", "1.0.2 g3529d9e", "0.0.0 00000000" },
+        { "1.1.1 g2c45118", "1.0.3 g2c45118", "0.0.0 00000000" },
+    };
+
+    @TempDir
+    File dir;
+
+    @Test
+    void info() throws Exception {
+        try (var repo = TestRepository.createDefault(this.dir, true)) {
+            for (int i = 0; i < repo.commits.size(); i++) {
+                var commit = repo.commits.get(i);
+                repo.git.checkout().setName(commit.name()).call();
+
+                for (int p = 0; p < PROJECTS.length; p++) {
+                    String actual;
+                    try (var version = this.build(PROJECTS[p])) {
+                        actual = toString(version.getInfo());
+                    } catch (IllegalArgumentException e) {
+                        actual = null;
+                    }
+
+                    assertEquals(EXPECTED[i][p], actual, "Info of '" + PROJECTS[p] + "' at " + commit.getShortMessage());
+                }
+            }
+        }
+    }
+
+    @Test
+    void forEachCommitInfo() throws Exception {
+        try (var repo = TestRepository.createDefault(this.dir, true)) {
+            for (int p = 0; p < PROJECTS.length; p++) {
+                var infos = new ArrayList<GitVersion.Info>();
+                try (var version = this.build(PROJECTS[p])) {
+                    version.forEachCommitInfo(null, infos::add);
+                }
+
+                for (var info : infos) {
+                    var i = indexOf(repo, info.getCommit());
+                    if (EXPECTED[i][p] != null)
+                        assertEquals(EXPECTED[i][p], toString(info), "Info of '" + PROJECTS[p] + "' at " + repo.commits.get(i).getShortMessage());
+                }
+            }
+        }
+    }
+
+    /** Merges are described with the exact number of commits since the tag, which DescribeCommand only estimates. */
+    @Test
+    void forEachCommitInfoOfMerges() throws Exception {
+        try (var repo = TestRepository.create(this.dir)) {
+            repo.tag("1.0", repo.commit("A", "a"), true);
+            repo.checkout("feature", true);
+            repo.commit("D", "d");
+            repo.commit("E", "e");
+            repo.checkout("main", false);
+            repo.commit("B", "b");
+            repo.tag("1.1", repo.commit("C", "c"), false);
+            repo.merge("feature", "M");
+            repo.commit("F", "f");
+
+            var infos = new ArrayList<GitVersion.Info>();
+            try (var version = this.build("")) {
+                version.forEachCommitInfo(null, infos::add);
+            }
+
+            assertEquals(repo.commits.size(), infos.size());
+            for (var info : infos) {
+                var commit = repo.commits.get(indexOf(repo, info.getCommit()));
+                var description = Util.rsplit(repo.describe(commit, ""), "-", 2);
+                var offset = description[1];
+                if (commit.getParentCount() > 1) {
+                    var tag = repo.git.getRepository().resolve(description[0] + "^{commit}");
+                    offset = Integer.toString(repo.countCommits(tag, commit, List.of(), List.of()));
+                }
+
+                assertEquals(description[0] + '.' + offset + ' ' + description[2], toString(info), "Info at " + commit.getShortMessage());
+            }
+        }
+    }
+
+    @Test
+    void allInfo() throws Exception {
+        TestRepository.createDefault(this.dir, true).close();
+        try (var version = this.build("")) {
+            var all = version.getAllInfo();
+            assertEquals(PROJECTS.length, all.size());
+
+            for (var project : PROJECTS) {
+                try (var single = this.build(project)) {
+                    var info = single.getInfo();
+                    assertEquals(all.get(project), info);
+                    assertEquals(info, all.get(project));
+                    assertEquals(all.get(project).hashCode(), info.hashCode());
+                }
+            }
+        }
+    }
+
+    /** The offset is counted to the commit that was described, even if {@code HEAD} moves before it is read. */
+    @Test
+    void infoAfterHeadMoved() throws Exception {
+        try (var repo = TestRepository.createDefault(this.dir, true)) {
+            var last = EXPECTED.length - 1;
+            for (int p = 0; p < PROJECTS.length; p++) {
+                try (var version = this.build(PROJECTS[p])) {
+                    var info = version.getInfo();
+                    assertEquals(repo.commits.get(last).name(), info.getCommit());
+
+                    repo.commit("Move HEAD", "src/Later" + p + ".java", "sub/Later" + p + ".java", "sub/nested/Later" + p + ".java");
+                    assertEquals(EXPECTED[last][p], toString(info), "Info of '" + PROJECTS[p] + "' after HEAD moved");
+                    repo.git.reset().setMode(ResetCommand.ResetType.HARD).setRef(repo.commits.get(last).name()).call();
+                }
+            }
+        }
+    }
+
+    /** The tags are shared while the repository is leased, but read again once every GitVersion using it is closed. */
+    @Test
+    void tagsAfterClose() throws Exception {
+        try (var repo = TestRepository.createDefault(this.dir, false)) {
+            var head = repo.commits.get(repo.commits.size() - 1);
+            try (var version = this.build(""); var other = this.build("")) {
+                assertEquals("1.1", version.getInfo().getTag());
+
+                repo.tag("1.2", head, false);
+                assertEquals("1.1", other.getInfo().getTag());
+            }
+
+            try (var version = this.build("")) {
+                assertEquals("1.2", version.getInfo().getTag());
+            }
+        }
+    }
+
+    private GitVersion build(String project) {
+        return GitVersion.builder().strict(false).root(this.dir).project(new File(this.dir, project)).build();
+    }
+
+    private static int indexOf(TestRepository repo, String commit) {
+        for (int i = 0; i < repo.commits.size(); i++) {
+            if (repo.commits.get(i).name().equals(commit)) return i;
+        }
+
+        throw new IllegalArgumentException("Unknown commit " + commit);
+    }
+
+    private static String toString(GitVersion.Info info) {
+        return info.getTag() + '.' + info.getOffset() + ' ' + info.getHash();
+    }
+}
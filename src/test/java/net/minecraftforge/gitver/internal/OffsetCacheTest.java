@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OffsetCacheTest {
+    private static final ChangedProjects.Paths PATHS = new ChangedProjects.Paths(List.of("sub"), List.of("sub/nested"));
+
+    @TempDir
+    File dir;
+
+    private TestRepository repo;
+    private GitCache cache;
+    private int counted;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.repo = TestRepository.createDefault(this.dir, true);
+        this.cache = GitCache.of(this.repo.git.getRepository());
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.repo.close();
+    }
+
+    @Test
+    void sameHead() throws Exception {
+        var tag = this.repo.commits.get(2);
+        this.check("sub-1.0", tag, this.head(), 1);
+        this.check("sub-1.0", tag, this.head(), 0);
+    }
+
+    @Test
+    void extended() throws Exception {
+        var tag = this.repo.commits.get(2);
+        this.check("sub-1.0", tag, this.head(), 1);
+
+        this.repo.commit("Change sub", "sub/Changed.java");
+        this.repo.commit("Change the root project", "src/Changed.java");
+        this.repo.commit("Change the nested project again", "sub/nested/Changed.java");
+        this.check("sub-1.0", tag, this.head(), 0);
+    }
+
+    @Test
+    void otherTag() throws Exception {
+        this.check("sub-1.0", this.repo.commits.get(2), this.head(), 1);
+
+        var tag = this.repo.commits.get(6);
+        this.repo.tag("sub-1.1", tag, false);
+        this.check("sub-1.1", tag, this.head(), 1);
+    }
+
+    @Test
+    void merged() throws Exception {
+        var tag = this.repo.commits.get(2);
+        this.check("sub-1.0", tag, this.head(), 1);
+
+        this.repo.checkout("other", true);
+        this.repo.commit("Change sub on another branch", "sub/Other.java");
+        this.repo.checkout("main", false);
+        this.repo.commit("Change sub on main", "sub/Main.java");
+        this.repo.merge("other", "Merge branch 'other'");
+        this.check("sub-1.0", tag, this.head(), 1);
+    }
+
+    @Test
+    void movedBack() throws Exception {
+        var tag = this.repo.commits.get(2);
+        this.check("sub-1.0", tag, this.head(), 1);
+        this.check("sub-1.0", tag, this.repo.commits.get(7), 1);
+    }
+
+    @Test
+    void truncated() throws Exception {
+        var tag = this.repo.commits.get(2);
+        this.check("sub-1.0", tag, this.head(), 1);
+
+        for (var file : new File(this.repo.git.getRepository().getDirectory(), "gitversion").listFiles((d, name) -> name.startsWith("offset-"))) {
+            try (var out = new RandomAccessFile(file, "rw")) {
+                out.setLength(out.length() - 1);
+            }
+        }
+        this.check("sub-1.0", tag, this.head(), 1);
+    }
+
+    /**
+     * Checks that the cached count is the same as counting the commits without the cache.
+     *
+     * @param counted How many times the commits should have been counted from scratch
+     */
+    private void check(String tag, RevCommit from, ObjectId head, int counted) throws Exception {
+        var expected = this.repo.countCommits(from, head, PATHS.include(), PATHS.exclude());
+
+        this.counted = 0;
+        var actual = OffsetCache.count(this.repo.git.getRepository(), this.cache, PATHS, tag, from, head, () -> {
+            this.counted++;
+            return expected;
+        });
+
+        assertEquals(expected, actual, "Count from " + tag);
+        assertEquals(counted, this.counted, "Counted from scratch");
+    }
+
+    private ObjectId head() throws Exception {
+        return this.repo.git.getRepository().resolve("HEAD");
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TagPeelCacheTest {
+    @TempDir
+    File dir;
+
+    private TestRepository repo;
+    private GitCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.repo = TestRepository.createDefault(this.dir, true);
+        this.cache = GitCache.of(this.repo.git.getRepository());
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.repo.close();
+    }
+
+    @Test
+    void roundTrip() throws Exception {
+        this.check(null);
+        assertTrue(this.cache.file("tags.idx").isFile());
+
+        // the tags were only just written, so they are listed again until the snapshot is no longer racy
+        this.age();
+        this.check(null);
+        this.check(null);
+        assertEquals(this.repo.commits.get(0), this.peel(null).get("1.0"), "Annotated tag is peeled");
+    }
+
+    @Test
+    void readsCachedTags() throws Exception {
+        this.age();
+        this.check(null);
+
+        // moving a loose tag in place does not touch its directory, so only the cached tags can still have the old ID
+        var tag = new File(this.repo.git.getRepository().getDirectory(), Constants.R_TAGS + "1.1");
+        var modified = Files.getLastModifiedTime(tag.getParentFile().toPath());
+        Files.writeString(tag.toPath(), this.repo.commits.get(0).name() + '\n');
+        Files.setLastModifiedTime(tag.getParentFile().toPath(), modified);
+
+        assertEquals(this.repo.commits.get(8), this.peel(null).get("1.1"));
+    }
+
+    @Test
+    void addedTag() throws Exception {
+        this.age();
+        this.check(null);
+
+        this.repo.tag("1.2", this.repo.commits.get(9), true);
+        assertTrue(this.check(null).containsKey("1.2"));
+    }
+
+    @Test
+    void movedTag() throws Exception {
+        this.age();
+        this.check(null);
+
+        this.repo.tag("1.1", this.repo.commits.get(9), false);
+        assertEquals(this.repo.commits.get(9), this.check(null).get("1.1"));
+    }
+
+    @Test
+    void deletedTag() throws Exception {
+        this.age();
+        this.check(null);
+
+        this.repo.git.tagDelete().setTags("1.1").call();
+        assertFalse(this.check(null).containsKey("1.1"));
+    }
+
+    @Test
+    void packedTags() throws Exception {
+        this.age();
+        this.check(null);
+
+        this.repo.git.packRefs().setAll(true).call();
+        this.check(null);
+        this.age();
+        this.check(null);
+        this.check(null);
+    }
+
+    @Test
+    void tagPrefix() throws Exception {
+        this.age();
+        assertEquals(Map.of("sub-1.0", this.repo.commits.get(2)), this.check("sub-"));
+        this.check(null);
+        assertEquals(Map.of("sub-1.0", this.repo.commits.get(2)), this.check("sub-"));
+    }
+
+    /** Checks that the peeled tags are the same as peeling them without the cache. */
+    private Map<String, ObjectId> check(@Nullable String tagPrefix) throws IOException {
+        var expected = new HashMap<String, ObjectId>();
+        for (var ref : GitUtils.getTags(this.repo.git, tagPrefix))
+            expected.put(ref.getName().substring(Constants.R_TAGS.length()), GitUtils.peel(this.repo.git, ref));
+
+        var actual = this.peel(tagPrefix);
+        assertEquals(expected, actual);
+        return actual;
+    }
+
+    private Map<String, ObjectId> peel(@Nullable String tagPrefix) throws IOException {
+        return TagPeelCache.peelTags(this.repo.git, tagPrefix, this.cache);
+    }
+
+    /** Moves the modification times of the tags back, as if they were made long before the cache is used. */
+    private void age() throws IOException {
+        var time = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+        var git = this.repo.git.getRepository().getDirectory().toPath();
+
+        var packedRefs = git.resolve(Constants.PACKED_REFS);
+        if (Files.exists(packedRefs)) Files.setLastModifiedTime(packedRefs, time);
+
+        try (var paths = Files.walk(git.resolve(Constants.R_TAGS))) {
+            for (var path : paths.toList())
+                Files.setLastModifiedTime(path, time);
+        }
+    }
+}
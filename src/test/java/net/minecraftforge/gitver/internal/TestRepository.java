@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.gitver.internal;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.InvalidPatternException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Builds small Git repositories for tests. Every commit and tag is made by the same person at a fixed time one minute
+ * after the previous one, so the same history always has the same commit hashes.
+ */
+final class TestRepository implements AutoCloseable {
+    private static final Instant EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+
+    final File root;
+    final Git git;
+    final List<RevCommit> commits = new ArrayList<>();
+    private int time;
+    private int files;
+
+    private TestRepository(File root, Git git) {
+        this.root = root;
+        this.git = git;
+    }
+
+    static TestRepository create(File root) throws GitAPIException {
+        return new TestRepository(root, Git.init().setDirectory(root).setInitialBranch("main").call());
+    }
+
+    /**
+     * Builds the history most tests use:
+     * <pre>
+     * main:    A(1.0) - B - C(sub-1.0) - F - M - H - I(1.1) - J
+     *                        \          /
+     * feature:                D ------ E
+     * </pre>
+     * The commits change files in the root project, in {@code sub}, and in {@code sub/nested}. The commit message of
+     * {@code H} refers to a pull request.
+     *
+     * @param root        The directory to create the repository in
+     * @param subprojects Whether to configure {@code sub} and {@code sub/nested} as subprojects, and to tag {@code C}
+     *                    for {@code sub}
+     * @return The repository
+     */
+    static TestRepository createDefault(File root, boolean subprojects) throws GitAPIException, IOException {
+        var repo = create(root);
+        if (subprojects) {
+            repo.write(".gitversion", """
+                [root]
+                tag = ""
+
+                [sub]
+
+                [nested]
+                path = "sub/nested"
+                tag = "nested"
+                """);
+        }
+
+        var a = repo.commit("Initial commit", "README.md");
+        repo.tag("1.0", a, true);
+        repo.commit("Add the root project", "src/Root.java");
+        var c = repo.commit("Add the sub project", "sub/Sub.java");
+        if (subprojects) repo.tag("sub-1.0", c, false);
+
+        repo.checkout("feature", true);
+        repo.commit("Start a feature in sub", "sub/Feature.java");
+        repo.commit("Finish the feature\n\nIt also changes the nested project.", "sub/nested/Nested.java");
+
+        repo.checkout("main", false);
+        repo.commit("Work on main meanwhile", "src/Main.java");
+        repo.merge("feature", "Merge branch 'feature'");
+        repo.commit("Fix the build (#12)", "src/Build.java");
+        var i = repo.commit("Release", "README.md");
+        repo.tag("1.1", i, false);
+        repo.commit("Change the nested project", "sub/nested/Other.java");
+        return repo;
+    }
+
+    /** Writes a file with the given contents, without committing it. */
+    void write(String path, String contents) throws IOException {
+        var file = new File(this.root, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.writeString(file.toPath(), contents, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Commits a change to every given file.
+     *
+     * @param message The commit message
+     * @param paths   The paths of the files to change
+     * @return The commit
+     */
+    RevCommit commit(String message, String... paths) throws GitAPIException, IOException {
+        for (var path : paths)
+            this.write(path, "change " + this.files++ + '\n');
+
+        this.git.add().addFilepattern(".").call();
+
+        var ident = this.nextIdent();
+        var commit = this.git.commit().setMessage(message).setAuthor(ident).setCommitter(ident).setSign(false).call();
+        this.commits.add(commit);
+        return commit;
+    }
+
+    /**
+     * Merges the given branch into the current one, always creating a merge commit.
+     *
+     * @param branch  The branch to merge
+     * @param message The commit message of the merge
+     * @return The merge commit
+     */
+    RevCommit merge(String branch, String message) throws GitAPIException, IOException {
+        var other = this.git.getRepository().resolve(branch);
+        this.git.merge().include(other).setCommit(false).setFastForward(MergeCommand.FastForwardMode.NO_FF).call();
+
+        var ident = this.nextIdent();
+        var commit = this.git.commit().setMessage(message).setAuthor(ident).setCommitter(ident).setSign(false).call();
+        this.commits.add(commit);
+        return commit;
+    }
+
+    /**
+     * Tags the given commit.
+     *
+     * @param name      The name of the tag
+     * @param commit    The commit to tag
+     * @param annotated Whether to create an annotated tag instead of a lightweight one
+     */
+    void tag(String name, RevCommit commit, boolean annotated) throws GitAPIException {
+        var tag = this.git.tag().setName(name).setObjectId(commit).setAnnotated(annotated).setForceUpdate(true);
+        if (annotated) tag.setMessage(name).setTagger(this.nextIdent()).setSigned(false);
+        tag.call();
+    }
+
+    /** Checks out the given branch, creating it at {@code HEAD} first if asked to. */
+    void checkout(String branch, boolean create) throws GitAPIException {
+        this.git.checkout().setName(branch).setCreateBranch(create).call();
+    }
+
+    /**
+     * Describes the given commit with {@code DescribeCommand}, the way GitVersion used to describe commits before
+     * {@link DescribeWalk}.
+     *
+     * @return The description as {@code tag-depth-hash}, or {@code null} if no matching tag is reachable
+     */
+    @Nullable String describe(ObjectId commit, String tagPrefix, String... filters) throws GitAPIException, InvalidPatternException, IOException {
+        var describe = this.git.describe().setTarget(commit).setTags(true).setLong(true);
+        if (!tagPrefix.isEmpty())
+            describe.setMatch(tagPrefix + "**");
+        else
+            describe.setExclude("*-*");
+
+        for (var filter : filters)
+            describe.setMatch(filter);
+
+        return describe.call();
+    }
+
+    /**
+     * Counts the commits from {@code from} to {@code to} that changed the given paths with {@code LogCommand}, the way
+     * GitVersion used to count commits before they were counted in a single walk.
+     *
+     * @return The commit count, minus one
+     */
+    int countCommits(AnyObjectId from, AnyObjectId to, Collection<String> include, Collection<String> exclude) throws GitAPIException, IOException {
+        try (var walk = new RevWalk(this.git.getRepository())) {
+            var log = this.git.log().add(to);
+            for (var parent : walk.parseCommit(from).getParents())
+                log.not(parent);
+            for (var path : include)
+                log.addPath(path);
+            for (var path : exclude)
+                log.excludePath(path);
+
+            int count = -1;
+            for (var ignored : log.call())
+                count++;
+            return count;
+        }
+    }
+
+    private PersonIdent nextIdent() {
+        return new PersonIdent("GitVersion", "gitversion@example.com", EPOCH.plusSeconds(60L * this.time++), ZoneOffset.UTC);
+    }
+
+    @Override
+    public void close() {
+        this.git.close();
+    }
+}